@@ -1,16 +1,45 @@
 package uk.ignas.livedictionary;
 
 import android.app.Activity;
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
+import com.google.common.util.concurrent.FutureCallback;
+import uk.ignas.livedictionary.core.AsyncDictionary;
 import uk.ignas.livedictionary.core.DataImporterExporter;
-import uk.ignas.livedictionary.core.Dictionary;
+import uk.ignas.livedictionary.core.ImportProgressListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ImportExportActivity {
+    private static final int PROGRESS_MAX = 100;
+
+    private enum Transfer {
+        IMPORT("Importing translations", true),
+        MERGE("Merging translations", true),
+        EXPORT("Exporting translations", false),
+        BACKUP("Backing up dictionary", false),
+        EXPORT_CHANGES("Exporting changes", false),
+        RESTORE("Restoring dictionary", true);
+
+        private final String message;
+
+        private final boolean changesDictionary;
+
+        Transfer(String message, boolean changesDictionary) {
+            this.message = message;
+            this.changesDictionary = changesDictionary;
+        }
+    }
+
+    private Activity activity;
     private DataImporterExporter dataImporterExporter;
-    private Dictionary dictionary;
+    private AsyncDictionary dictionary;
     private GuiError guiError;
 
-    public ImportExportActivity(DataImporterExporter dataImporterExporter, Dictionary dictionary, GuiError guiError) {
+    public ImportExportActivity(Activity activity, DataImporterExporter dataImporterExporter, AsyncDictionary dictionary,
+                                GuiError guiError) {
+        this.activity = activity;
         this.dataImporterExporter = dataImporterExporter;
         this.dictionary = dictionary;
         this.guiError = guiError;
@@ -25,24 +54,115 @@ public class ImportExportActivity {
     public void handleImportResult(int resultCode, Intent data) {
         if (resultCode == Activity.RESULT_OK) {
             String filePath = data.getData().getPath();
-            try {
-                dataImporterExporter.importFromFile(filePath);
-            } catch (RuntimeException e) {
-                guiError.showErrorDialogAndContinue(e);
-            }
-            dictionary.reloadData();
+            startTransfer(Transfer.IMPORT, filePath);
+        }
+    }
+
+    public void handleMergeResult(int resultCode, Intent data) {
+        if (resultCode == Activity.RESULT_OK) {
+            String filePath = data.getData().getPath();
+            startTransfer(Transfer.MERGE, filePath);
         }
     }
 
     public void handleExportResult(int resultCode, Intent data) {
         if (resultCode == Activity.RESULT_OK) {
             String filePath = data.getData().getPath();
-            try {
-                dataImporterExporter.export(filePath);
-            } catch (RuntimeException e) {
-                guiError.showErrorDialogAndContinue(e);
-            }
-            dictionary.reloadData();
+            startTransfer(Transfer.EXPORT, filePath);
+        }
+    }
+
+    public void handleBackupResult(int resultCode, Intent data) {
+        if (resultCode == Activity.RESULT_OK) {
+            String filePath = data.getData().getPath();
+            startTransfer(Transfer.BACKUP, filePath);
         }
     }
+
+    public void handleExportChangesResult(int resultCode, Intent data) {
+        if (resultCode == Activity.RESULT_OK) {
+            String filePath = data.getData().getPath();
+            startTransfer(Transfer.EXPORT_CHANGES, filePath);
+        }
+    }
+
+    public void handleRestoreResult(int resultCode, Intent data) {
+        if (resultCode == Activity.RESULT_OK) {
+            String filePath = data.getData().getPath();
+            startTransfer(Transfer.RESTORE, filePath);
+        }
+    }
+
+    private void startTransfer(final Transfer transfer, final String filePath) {
+        final ProgressDialog progressDialog = new ProgressDialog(activity);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        progressDialog.setMessage(transfer.message);
+        progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progressDialog.setIndeterminate(!transfer.changesDictionary);
+        progressDialog.setMax(PROGRESS_MAX);
+        progressDialog.setCancelable(true);
+        progressDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                cancelled.set(true);
+            }
+        });
+        progressDialog.show();
+        final ImportProgressListener listener = new ImportProgressListener() {
+            @Override
+            public void onProgress(long bytesRead, long totalBytes) {
+                final int progress = totalBytes == 0 ? PROGRESS_MAX : (int) (bytesRead * PROGRESS_MAX / totalBytes);
+                activity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        progressDialog.setProgress(progress);
+                    }
+                });
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+        };
+        dictionary.transfer(new Runnable() {
+            @Override
+            public void run() {
+                switch (transfer) {
+                    case IMPORT:
+                        dataImporterExporter.importFromFile(filePath, listener);
+                        break;
+                    case MERGE:
+                        dataImporterExporter.mergeFromFile(filePath, listener);
+                        break;
+                    case EXPORT:
+                        dataImporterExporter.export(filePath);
+                        break;
+                    case BACKUP:
+                        dataImporterExporter.backup(filePath);
+                        break;
+                    case EXPORT_CHANGES:
+                        dataImporterExporter.exportChanges(filePath);
+                        break;
+                    case RESTORE:
+                        dataImporterExporter.restoreBackup(filePath, listener);
+                        break;
+                }
+            }
+        }, transfer.changesDictionary, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                progressDialog.dismiss();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                progressDialog.dismiss();
+                if (!cancelled.get()) {
+                    Exception e = t instanceof Exception ? (Exception) t : new RuntimeException(t);
+                    guiError.showErrorDialogAndContinue(e);
+                }
+            }
+        });
+    }
 }
@@ -8,14 +8,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.*;
+import com.google.common.util.concurrent.FutureCallback;
 import uk.ignas.livedictionary.core.*;
-import uk.ignas.livedictionary.core.answer.AnswerDao;
-import uk.ignas.livedictionary.core.answer.SqliteAnswerDao;
 import uk.ignas.livedictionary.core.label.Label;
-import uk.ignas.livedictionary.core.label.LabelDao;
-import uk.ignas.livedictionary.core.Labeler;
-import uk.ignas.livedictionary.core.label.SqliteLabelDao;
-import uk.ignas.livedictionary.core.util.DatabaseFacade;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,10 +18,13 @@ import java.util.List;
 public class LabellingActivity extends Activity {
     private static final String TAG = LabellingActivity.class.getName();
 
-    private TranslationDao translationDao;
-    private DaoObjectsFetcher fetcher;
+    private static final int PAGE_SIZE = 100;
+
+    private AsyncDictionary dictionary;
     private GuiError guiError;
-    private Labeler labeler;
+    private int lastLoadedId = 0;
+    private boolean allLoaded = false;
+    private boolean loading = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -35,21 +33,57 @@ public class LabellingActivity extends Activity {
 
         guiError = new GuiError(this);
         try {
-            DatabaseFacade database = new DatabaseFacade(LabellingActivity.this);
-            LabelDao labelDao = new SqliteLabelDao(database);
-            AnswerDao answerDao = new SqliteAnswerDao(database);
-            this.translationDao = new SqliteTranslationDao(labelDao, database, answerDao);
-            fetcher = new DaoObjectsFetcher(labelDao, answerDao);
-            labeler = new Labeler(this.translationDao, fetcher, labelDao);
+            LiveDictionaryApplication application = (LiveDictionaryApplication) getApplication();
+            dictionary = application.getDictionary();
         } catch (Exception e) {
             Log.e(TAG, "critical error ", e);
             guiError.showErrorDialogAndExitActivity(e);
         }
         final ListView listview = (ListView) findViewById(R.id.listview);
 
-        List<Translation> labelledTranslations = new ArrayList<>(labeler.getLabelled(Label.A));
+        final List<Translation> labelledTranslations = new ArrayList<>();
         final StableArrayAdapter adapter = new StableArrayAdapter(this, labelledTranslations);
         listview.setAdapter(adapter);
+        loadNextPage(labelledTranslations, adapter);
+        listview.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (firstVisibleItem + visibleItemCount >= totalItemCount) {
+                    loadNextPage(labelledTranslations, adapter);
+                }
+            }
+        });
+    }
+
+    private void loadNextPage(final List<Translation> labelledTranslations, final StableArrayAdapter adapter) {
+        if (allLoaded || loading) {
+            return;
+        }
+        loading = true;
+        dictionary.getLabelledPage(Label.A, lastLoadedId, PAGE_SIZE, new FutureCallback<List<Translation>>() {
+            @Override
+            public void onSuccess(List<Translation> page) {
+                loading = false;
+                if (page.size() < PAGE_SIZE) {
+                    allLoaded = true;
+                }
+                if (!page.isEmpty()) {
+                    lastLoadedId = page.get(page.size() - 1).getId();
+                    labelledTranslations.addAll(page);
+                    adapter.notifyDataSetChanged();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                loading = false;
+                guiError.showErrorDialogAndContinue(t instanceof Exception ? (Exception) t : new RuntimeException(t));
+            }
+        });
     }
 
     private class StableArrayAdapter extends ArrayAdapter<Translation> {
@@ -73,11 +107,21 @@ public class LabellingActivity extends Activity {
             TextView deleteLabelButton = (Button) convertView.findViewById(R.id.delete_label);
             deleteLabelButton.setOnClickListener(new View.OnClickListener() {
                 @Override
-                public void onClick(View view) {
-                    labeler.removeLabel(translation, Label.A);
-                    translations.remove(translation);
-                    notifyDataSetChanged();
-                    view.setAlpha(1);
+                public void onClick(final View view) {
+                    dictionary.removeLabel(translation, Label.A, new FutureCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            translations.remove(translation);
+                            notifyDataSetChanged();
+                            view.setAlpha(1);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            guiError.showErrorDialogAndContinue(
+                                t instanceof Exception ? (Exception) t : new RuntimeException(t));
+                        }
+                    });
                 }
             });
             return convertView;
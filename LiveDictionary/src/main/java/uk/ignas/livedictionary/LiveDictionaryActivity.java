@@ -12,14 +12,14 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
+import com.google.common.util.concurrent.FutureCallback;
 import uk.ignas.livedictionary.core.*;
 import uk.ignas.livedictionary.core.answer.Answer;
-import uk.ignas.livedictionary.core.answer.AnswerDao;
-import uk.ignas.livedictionary.core.answer.SqliteAnswerDao;
 import uk.ignas.livedictionary.core.label.Label;
-import uk.ignas.livedictionary.core.label.LabelDao;
-import uk.ignas.livedictionary.core.label.SqliteLabelDao;
-import uk.ignas.livedictionary.core.util.DatabaseFacade;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class LiveDictionaryActivity extends Activity implements ModifyDictionaryDialog.ModifyDictionaryListener {
     private static final String TAG = LiveDictionaryActivity.class.getName();
@@ -30,6 +30,16 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
 
     private static final int PICK_EXPORT_FILE_RESULT_CODE = 2;
 
+    private static final int PICK_MERGE_FILE_RESULT_CODE = 4;
+
+    private static final int PICK_BACKUP_FILE_RESULT_CODE = 5;
+
+    private static final int PICK_RESTORE_FILE_RESULT_CODE = 6;
+
+    private static final int PICK_CHANGES_FILE_RESULT_CODE = 7;
+
+    private static final long PAUSE_FLUSH_TIMEOUT_MILLIS = 1000;
+
     private Button showTranslationButton;
 
     private Button markTranslationAsEasyButton;
@@ -42,17 +52,22 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
 
     private TextView questionLabel;
 
-    private volatile Translation currentTranslation = EMPTY_TRANSLATION;
-
-    private Dictionary dictionary;
+    private Translation currentTranslation = EMPTY_TRANSLATION;
 
-    private TranslationDao translationDao;
+    private AsyncDictionary dictionary;
 
-    private DaoObjectsFetcher fetcher;
+    private GuiError guiError;
 
-    private Labeler labeler;
+    private final FutureCallback<Object> reportFailure = new FutureCallback<Object>() {
+        @Override
+        public void onSuccess(Object result) {
+        }
 
-    private GuiError guiError;
+        @Override
+        public void onFailure(Throwable t) {
+            guiError.showErrorDialogAndContinue(asException(t));
+        }
+    };
 
     private ImportExportActivity importExportActivity;
 
@@ -76,17 +91,21 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
 
         guiError = new GuiError(this);
         try {
-            DatabaseFacade databaseFacade = new DatabaseFacade(LiveDictionaryActivity.this);
-            LabelDao labelDao = new SqliteLabelDao(databaseFacade);
-            AnswerDao answerDao = new SqliteAnswerDao(databaseFacade);
-            this.translationDao = new SqliteTranslationDao(labelDao, databaseFacade, answerDao);
-            fetcher = new DaoObjectsFetcher(labelDao, answerDao);
-            labeler = new Labeler(this.translationDao, fetcher, labelDao);
-            Clock clock = new Clock();
-            dictionary = new Dictionary(this.translationDao, answerDao, fetcher, labeler, clock,
-                                        new PreferNewestTranslationSelectionStrategy(clock));
+            LiveDictionaryApplication application = (LiveDictionaryApplication) getApplication();
+            dictionary = application.getDictionary();
+            dictionary.whenReady(new FutureCallback<Dictionary>() {
+                @Override
+                public void onSuccess(Dictionary result) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    Log.e(TAG, "critical error ", t);
+                    guiError.showErrorDialogAndExitActivity(asException(t));
+                }
+            });
             importExportActivity =
-                new ImportExportActivity(new DataImporterExporter(this.translationDao), dictionary, guiError);
+                new ImportExportActivity(this, application.getDataImporterExporter(), dictionary, guiError);
 
             publishNextTranslation();
             showTranslationButton.setOnClickListener(new View.OnClickListener() {
@@ -99,7 +118,7 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
             markTranslationAsEasyButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    dictionary.mark(currentTranslation, Answer.CORRECT);
+                    dictionary.mark(currentTranslation, Answer.CORRECT, reportFailure);
                     publishNextTranslation();
                 }
             });
@@ -107,14 +126,14 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
             markTranslationAsDifficultButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    dictionary.mark(currentTranslation, Answer.INCORRECT);
+                    dictionary.mark(currentTranslation, Answer.INCORRECT, reportFailure);
                     publishNextTranslation();
                 }
             });
             markTranslationAskedTooOftenButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    dictionary.markAsAskedTooOften(currentTranslation);
+                    dictionary.markAsAskedTooOften(currentTranslation, reportFailure);
                     publishNextTranslation();
                 }
             });
@@ -124,6 +143,24 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
         }
     }
 
+    @Override
+    protected void onPause() {
+        if (dictionary != null) {
+            try {
+                dictionary.flushAnswers(reportFailure).get(PAUSE_FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                Log.w(TAG, "answers left in journal on pause", e);
+            }
+        }
+        super.onPause();
+    }
+
+    private static Exception asException(Throwable t) {
+        return t instanceof Exception ? (Exception) t : new RuntimeException(t);
+    }
+
     private void showTranslation() {
         questionLabel.setText(currentTranslation.getNativeWord().get());
         correctAnswerView.setText(currentTranslation.getForeignWord().get());
@@ -135,19 +172,34 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
         showTranslationButton.setEnabled(isTranslationPhase);
         markTranslationAsEasyButton.setEnabled(isSubmittionPhase);
         markTranslationAsDifficultButton.setEnabled(isSubmittionPhase);
+        markTranslationAskedTooOftenButton.setEnabled(true);
     }
 
     private void publishNextTranslation() {
-        try {
-            currentTranslation = dictionary.getRandomTranslation();
-        } catch (LiveDictionaryException e) {
-            guiError.showErrorDialogAndContinue(e);
-            currentTranslation = EMPTY_TRANSLATION;
-        } catch (RuntimeException e) {
-            guiError.showErrorDialogAndExitActivity(e);
-        }
-        enableTranslationAndNotSubmittionButtons(true);
-        askUserToTranslate();
+        showTranslationButton.setEnabled(false);
+        markTranslationAsEasyButton.setEnabled(false);
+        markTranslationAsDifficultButton.setEnabled(false);
+        markTranslationAskedTooOftenButton.setEnabled(false);
+        dictionary.getRandomTranslation(new FutureCallback<Translation>() {
+            @Override
+            public void onSuccess(Translation translation) {
+                currentTranslation = translation;
+                enableTranslationAndNotSubmittionButtons(true);
+                askUserToTranslate();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof LiveDictionaryException) {
+                    guiError.showErrorDialogAndContinue((LiveDictionaryException) t);
+                    currentTranslation = EMPTY_TRANSLATION;
+                    enableTranslationAndNotSubmittionButtons(true);
+                    askUserToTranslate();
+                } else {
+                    guiError.showErrorDialogAndExitActivity(asException(t));
+                }
+            }
+        });
     }
 
     private void askUserToTranslate() {
@@ -164,18 +216,23 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
 
     @Override
     public void createTranslation(Translation translation) {
-        dictionary.insert(translation);
+        dictionary.insert(translation, reportFailure);
     }
 
     @Override
-    public void updateTranslation(Translation translation) {
-        try {
-            dictionary.update(translation);
-            currentTranslation = translation;
-            showTranslation();
-        } catch (RuntimeException e) {
-            guiError.showErrorDialogAndContinue(e);
-        }
+    public void updateTranslation(final Translation translation) {
+        dictionary.update(translation, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean updated) {
+                currentTranslation = translation;
+                showTranslation();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                guiError.showErrorDialogAndContinue(asException(t));
+            }
+        });
     }
 
     @Override
@@ -196,7 +253,8 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
                                                                                                DialogInterface dialog,
                                                                                                int which) {
                                                                                                dictionary.delete(
-                                                                                                   currentTranslation);
+                                                                                                   currentTranslation,
+                                                                                                   reportFailure);
                                                                                                publishNextTranslation();
                                                                                            }
                                                                                        }).setNegativeButton(R.string.no,
@@ -213,15 +271,26 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
             case R.id.import_data_button:
                 importExportActivity.startActivity(this, PICK_IMPORT_FILE_RESULT_CODE);
                 return true;
+            case R.id.merge_data_button:
+                importExportActivity.startActivity(this, PICK_MERGE_FILE_RESULT_CODE);
+                return true;
             case R.id.export_data_button:
                 importExportActivity.startActivity(this, PICK_EXPORT_FILE_RESULT_CODE);
                 return true;
+            case R.id.backup_data_button:
+                importExportActivity.startActivity(this, PICK_BACKUP_FILE_RESULT_CODE);
+                return true;
+            case R.id.export_changes_button:
+                importExportActivity.startActivity(this, PICK_CHANGES_FILE_RESULT_CODE);
+                return true;
+            case R.id.restore_data_button:
+                importExportActivity.startActivity(this, PICK_RESTORE_FILE_RESULT_CODE);
+                return true;
             case R.id.manage_labels_button:
-                Intent intent = new Intent(this, LabellingActivity.class);
-                startActivity(intent);
+                startActivity(new Intent(this, LabellingActivity.class));
                 return true;
             case R.id.add_label_button:
-                labeler.addLabel(currentTranslation, Label.A);
+                dictionary.addLabel(currentTranslation, Label.A, reportFailure);
                 return true;
             default:
                 return super.onOptionsItemSelected(item);
@@ -234,9 +303,21 @@ public class LiveDictionaryActivity extends Activity implements ModifyDictionary
             case PICK_IMPORT_FILE_RESULT_CODE:
                 importExportActivity.handleImportResult(resultCode, data);
                 break;
+            case PICK_MERGE_FILE_RESULT_CODE:
+                importExportActivity.handleMergeResult(resultCode, data);
+                break;
             case PICK_EXPORT_FILE_RESULT_CODE:
                 importExportActivity.handleExportResult(resultCode, data);
                 break;
+            case PICK_BACKUP_FILE_RESULT_CODE:
+                importExportActivity.handleBackupResult(resultCode, data);
+                break;
+            case PICK_CHANGES_FILE_RESULT_CODE:
+                importExportActivity.handleExportChangesResult(resultCode, data);
+                break;
+            case PICK_RESTORE_FILE_RESULT_CODE:
+                importExportActivity.handleRestoreResult(resultCode, data);
+                break;
         }
     }
 }
@@ -0,0 +1,97 @@
+package uk.ignas.livedictionary;
+
+import android.app.Application;
+import uk.ignas.livedictionary.core.*;
+import uk.ignas.livedictionary.core.answer.AnswerDao;
+import uk.ignas.livedictionary.core.answer.AnswerJournal;
+import uk.ignas.livedictionary.core.answer.SqliteAnswerDao;
+import uk.ignas.livedictionary.core.answer.WriteBehindAnswerLogger;
+import uk.ignas.livedictionary.core.backup.SqliteBackupDao;
+import uk.ignas.livedictionary.core.label.LabelDao;
+import uk.ignas.livedictionary.core.label.SqliteLabelDao;
+import uk.ignas.livedictionary.core.util.DatabaseFacade;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+public class LiveDictionaryApplication extends Application {
+    private static final String ANSWER_JOURNAL = "answers.journal";
+
+    private DatabaseFacade database;
+
+    private LabelDao labelDao;
+
+    private AnswerDao answerDao;
+
+    private TranslationDao translationDao;
+
+    private Labeler labeler;
+
+    private DataImporterExporter dataImporterExporter;
+
+    private AsyncDictionary dictionary;
+
+    public synchronized TranslationDao getTranslationDao() {
+        if (translationDao == null) {
+            translationDao = new SqliteTranslationDao(getLabelDao(), getDatabase(), getAnswerDao());
+        }
+        return translationDao;
+    }
+
+    public synchronized Labeler getLabeler() {
+        if (labeler == null) {
+            labeler = new Labeler(getTranslationDao(), getLabelDao());
+        }
+        return labeler;
+    }
+
+    public synchronized DataImporterExporter getDataImporterExporter() {
+        if (dataImporterExporter == null) {
+            dataImporterExporter = new DataImporterExporter(getTranslationDao(), new SqliteBackupDao(getDatabase()));
+        }
+        return dataImporterExporter;
+    }
+
+    public synchronized AsyncDictionary getDictionary() {
+        if (dictionary == null) {
+            final TranslationDao translationDao = getTranslationDao();
+            final LabelDao labelDao = getLabelDao();
+            final AnswerDao answerDao = getAnswerDao();
+            final Labeler labeler = getLabeler();
+            final File journal = new File(getFilesDir(), ANSWER_JOURNAL);
+            dictionary = new AsyncDictionary(new Callable<Dictionary>() {
+                @Override
+                public Dictionary call() {
+                    DaoObjectsFetcher fetcher = new DaoObjectsFetcher(labelDao, answerDao);
+                    Clock clock = new Clock();
+                    WriteBehindAnswerLogger answerLogger =
+                        new WriteBehindAnswerLogger(answerDao, new AnswerJournal(journal));
+                    return new Dictionary(translationDao, answerDao, fetcher, labeler, clock,
+                                          new PreferNewestTranslationSelectionStrategy(clock, answerDao), answerLogger);
+                }
+            }, new MainThreadExecutor());
+        }
+        return dictionary;
+    }
+
+    private DatabaseFacade getDatabase() {
+        if (database == null) {
+            database = new DatabaseFacade(this);
+        }
+        return database;
+    }
+
+    private LabelDao getLabelDao() {
+        if (labelDao == null) {
+            labelDao = new SqliteLabelDao(getDatabase());
+        }
+        return labelDao;
+    }
+
+    private AnswerDao getAnswerDao() {
+        if (answerDao == null) {
+            answerDao = new SqliteAnswerDao(getDatabase());
+        }
+        return answerDao;
+    }
+}
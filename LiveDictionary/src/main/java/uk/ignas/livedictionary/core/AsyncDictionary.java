@@ -0,0 +1,242 @@
+package uk.ignas.livedictionary.core;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.label.Label;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncDictionary {
+    public static final int FLUSH_INTERVAL_SECONDS = 10;
+
+    private final ListeningScheduledExecutorService writer =
+        MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dictionary-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+
+    private final Executor callbackExecutor;
+
+    private final ListenableFuture<Dictionary> dictionary;
+
+    public AsyncDictionary(Callable<Dictionary> dictionaryFactory, Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        this.dictionary = writer.submit(dictionaryFactory);
+        submitPlanAhead();
+        writer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                if (dictionary.isDone()) {
+                    submitFlush();
+                }
+            }
+        }, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void submitPlanAhead() {
+        writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                getDictionary().planAhead();
+            }
+        });
+    }
+
+    private void submitFlush() {
+        writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                getDictionary().flushAnswers();
+            }
+        });
+    }
+
+    public DictionarySnapshot getSnapshot() {
+        if (!dictionary.isDone()) {
+            return DictionarySnapshot.EMPTY;
+        }
+        try {
+            return getDictionary().getSnapshot();
+        } catch (RuntimeException e) {
+            return DictionarySnapshot.EMPTY;
+        }
+    }
+
+    public ListenableFuture<Dictionary> whenReady(FutureCallback<? super Dictionary> callback) {
+        Futures.addCallback(dictionary, callback, callbackExecutor);
+        return dictionary;
+    }
+
+    public ListenableFuture<Translation> getRandomTranslation(FutureCallback<? super Translation> callback) {
+        ListenableFuture<Translation> translation = submit(new DictionaryTask<Translation>() {
+            @Override
+            public Translation perform(Dictionary dictionary) {
+                return dictionary.getRandomTranslation();
+            }
+        }, callback);
+        submitPlanAhead();
+        return translation;
+    }
+
+    public ListenableFuture<Void> mark(final Translation translation, final Answer answer,
+                                       FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.mark(translation, answer);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> markAsAskedTooOften(final Translation translation,
+                                                      FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.markAsAskedTooOften(translation);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> insert(final Translation translation, FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.insert(translation);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Boolean> update(final Translation translation, FutureCallback<? super Boolean> callback) {
+        return submit(new DictionaryTask<Boolean>() {
+            @Override
+            public Boolean perform(Dictionary dictionary) {
+                return dictionary.update(translation);
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> delete(final Translation translation, FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.delete(translation);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<List<Translation>> getLabelledPage(final Label label, final int afterId, final int pageSize,
+                                                               FutureCallback<? super List<Translation>> callback) {
+        return submit(new DictionaryTask<List<Translation>>() {
+            @Override
+            public List<Translation> perform(Dictionary dictionary) {
+                return dictionary.getLabelledPage(label, afterId, pageSize);
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> addLabel(final Translation translation, final Label label,
+                                           FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.addLabel(translation, label);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> removeLabel(final Translation translation, final Label label,
+                                              FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.removeLabel(translation, label);
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> reloadData(FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.reloadData();
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> flushAnswers(FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.flushAnswers();
+                return null;
+            }
+        }, callback);
+    }
+
+    public ListenableFuture<Void> transfer(final Runnable transfer, final boolean changesDictionary,
+                                           FutureCallback<? super Void> callback) {
+        return submit(new DictionaryTask<Void>() {
+            @Override
+            public Void perform(Dictionary dictionary) {
+                dictionary.flushAnswers();
+                try {
+                    transfer.run();
+                } finally {
+                    if (changesDictionary) {
+                        dictionary.reloadData();
+                    }
+                }
+                return null;
+            }
+        }, callback);
+    }
+
+    private <T> ListenableFuture<T> submit(final DictionaryTask<T> task, FutureCallback<? super T> callback) {
+        ListenableFuture<T> result = writer.submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return task.perform(getDictionary());
+            }
+        });
+        Futures.addCallback(result, callback, callbackExecutor);
+        return result;
+    }
+
+    private Dictionary getDictionary() {
+        try {
+            return dictionary.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private interface DictionaryTask<T> {
+        T perform(Dictionary dictionary);
+    }
+}
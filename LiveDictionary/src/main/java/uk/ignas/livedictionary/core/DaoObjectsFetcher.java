@@ -4,12 +4,15 @@ import com.google.common.base.Function;
 import com.google.common.collect.*;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.apache.commons.lang.Validate.notNull;
 
@@ -19,6 +22,8 @@ public class DaoObjectsFetcher {
 
     private final AnswerDao answerDao;
 
+    private long lastFetchedAnswerId;
+
     public DaoObjectsFetcher(LabelDao labelDao, AnswerDao answerDao) {
         this.labelDao = labelDao;
         this.answerDao = answerDao;
@@ -76,10 +81,28 @@ public class DaoObjectsFetcher {
     public void fetchAnswersLog(List<Translation> allTranslations) {
         checkForNonNullIds(allTranslations);
 
+        lastFetchedAnswerId = answerDao.getLastAnswerId();
         ListMultimap<Integer, AnswerAtTime> answersLogByTranslationId = answerDao.getAnswersLogByTranslationId();
         for (Translation translation : allTranslations) {
             List<AnswerAtTime> answersLog = answersLogByTranslationId.get(translation.getId());
             translation.getMetadata().getRecentAnswers().addAll(answersLog);
         }
     }
+
+    public Collection<Translation> fetchNewAnswersLog(Map<Integer, Translation> translationsById) {
+        Set<Translation> updatedTranslations = new LinkedHashSet<>();
+        for (LoggedAnswer loggedAnswer : answerDao.getAnswersLoggedAfter(lastFetchedAnswerId)) {
+            Translation translation = translationsById.get(loggedAnswer.getTranslationId());
+            if (translation != null) {
+                translation.getMetadata().getRecentAnswers().add(loggedAnswer.getAnswerAtTime());
+                updatedTranslations.add(translation);
+            }
+            lastFetchedAnswerId = loggedAnswer.getId();
+        }
+        return updatedTranslations;
+    }
+
+    public void rewindAnswersLogAfterDeletion() {
+        lastFetchedAnswerId = Math.min(lastFetchedAnswerId, answerDao.getLastAnswerId());
+    }
 }
@@ -1,45 +1,126 @@
 package uk.ignas.livedictionary.core;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.io.CountingInputStream;
+import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
+import uk.ignas.livedictionary.core.backup.BackupDao;
+import uk.ignas.livedictionary.core.backup.BackupRowHandler;
+import uk.ignas.livedictionary.core.backup.BackupRowSource;
+import uk.ignas.livedictionary.core.backup.ChangeHandler;
+import uk.ignas.livedictionary.core.backup.ChangeSource;
+import uk.ignas.livedictionary.core.label.Label;
+
 import java.io.*;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class DataImporterExporter {
+    public static final int IMPORT_BATCH_SIZE = 500;
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int BACKUP_MAGIC = 0x4C44424B;
+
+    private static final int CHANGES_MAGIC = 0x4C444348;
+
+    private static final int UTF_BACKUP_FORMAT_VERSION = 1;
+
+    private static final int BACKUP_FORMAT_VERSION = 2;
+
+    private static final byte END_OF_BACKUP = 0;
+
+    private static final byte TRANSLATION_RECORD = 1;
+
+    private static final byte LABEL_RECORD = 2;
+
+    private static final byte ANSWER_RECORD = 3;
+
+    private static final byte DELETED_TRANSLATION_RECORD = 4;
+
+    private static final byte DELETED_LABEL_RECORD = 5;
+
+    private static final byte DELETED_ANSWER_RECORD = 6;
+
+    private static final int RESTORE_PROGRESS_INTERVAL = 1000;
+
     private TranslationParser translationParser = new TranslationParser();
     private TranslationDao translationDao;
+    private BackupDao backupDao;
 
-    public DataImporterExporter(TranslationDao translationDao) {
+    public DataImporterExporter(TranslationDao translationDao, BackupDao backupDao) {
         this.translationDao = translationDao;
+        this.backupDao = backupDao;
     }
 
     public void importFromFile(String planeTextFilePath) {
-        File planeTextExportedFile = new File(planeTextFilePath);
-        if (!planeTextExportedFile.exists()) {
-            throw new RuntimeException("file to import doesn't exist");
+        importFromFile(planeTextFilePath, ImportProgressListener.NONE);
+    }
+
+    public void importFromFile(String planeTextFilePath, ImportProgressListener listener) {
+        if (stageFile(getFileToImport(planeTextFilePath), listener)) {
+            translationDao.replaceWithStagedTranslations();
+        }
+    }
+
+    public void mergeFromFile(String planeTextFilePath, ImportProgressListener listener) {
+        if (stageFile(getFileToImport(planeTextFilePath), listener)) {
+            translationDao.mergeStagedTranslations();
         }
+    }
 
+    private boolean stageFile(File planeTextFile, ImportProgressListener listener) {
+        translationDao.clearStaging();
         try {
-            importOrThrow(planeTextFilePath);
+            readInBatches(planeTextFile, listener);
         } catch (IOException e) {
+            translationDao.clearStaging();
             throw new RuntimeException(e);
         }
+        if (listener.isCancelled()) {
+            translationDao.clearStaging();
+            return false;
+        }
+        return true;
     }
 
-    private void importOrThrow(String planeTextFilePath) throws IOException {
-        List<String> planeText = readFile(planeTextFilePath);
-
-        LinkedHashSet<Translation> translationsToInsert = new LinkedHashSet<>();
+    private File getFileToImport(String planeTextFilePath) {
+        File planeTextFile = new File(planeTextFilePath);
+        if (!planeTextFile.exists()) {
+            throw new RuntimeException("file to import doesn't exist");
+        }
+        return planeTextFile;
+    }
 
-        for (String planeTextLine : planeText) {
-            Translation parsed = translationParser.parse(planeTextLine);
-            if (parsed != null) {
-                translationsToInsert.add(parsed);
+    private void readInBatches(File planeTextFile, ImportProgressListener listener) throws IOException {
+        long totalBytes = planeTextFile.length();
+        CountingInputStream countingStream = new CountingInputStream(new FileInputStream(planeTextFile));
+        BufferedReader br = new BufferedReader(new InputStreamReader(countingStream));
+        try {
+            List<Translation> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            String line;
+            while (!listener.isCancelled() && (line = br.readLine()) != null) {
+                Translation parsed = translationParser.parse(line);
+                if (parsed != null) {
+                    batch.add(parsed);
+                }
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    translationDao.stage(batch);
+                    batch.clear();
+                    listener.onProgress(countingStream.getCount(), totalBytes);
+                }
             }
+            if (!listener.isCancelled()) {
+                translationDao.stage(batch);
+                listener.onProgress(totalBytes, totalBytes);
+            }
+        } finally {
+            br.close();
         }
-
-        List<Translation> translationsFromDb = translationDao.getAllTranslations();
-        translationDao.delete(translationsFromDb);
-
-        translationDao.insert(new ArrayList<>(translationsToInsert));
     }
 
     public void export(String planeTextExportedPath) {
@@ -50,42 +131,322 @@ public class DataImporterExporter {
         }
 
         try {
-            writeTranslations(planeTextExportedPath, translationDao.getAllTranslations());
+            writeTranslations(planeTextExportedPath);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    private List<String> readFile(String path) throws IOException {
-        BufferedReader br = null;
-        List<String> lines = new ArrayList<>();
+    private void writeTranslations(String path) throws IOException {
+        final BufferedWriter bw =
+            new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(path))), EXPORT_BUFFER_SIZE);
         try {
-            String sCurrentLine;
-            br = new BufferedReader(new FileReader(path));
-            while ((sCurrentLine = br.readLine()) != null) {
-                lines.add(sCurrentLine);
-            }
+            translationDao.forEachTranslationWords(new TranslationWordsHandler() {
+                @Override
+                public void handle(String foreignWord, String nativeWord) {
+                    try {
+                        bw.write(foreignWord);
+                        bw.write(" - ");
+                        bw.write(nativeWord);
+                        bw.newLine();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
         } finally {
+            bw.close();
+        }
+    }
+
+    public void backup(String backupPath) {
+        File backupFile = getFileToWrite(backupPath);
+        long checkpoint = backupDao.getLastChangeId();
+        try {
+            final DataOutputStream out = openBackupStream(backupFile, BACKUP_MAGIC);
+            try {
+                backupDao.readAll(new RecordWriter(out));
+                out.writeByte(END_OF_BACKUP);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        backupDao.saveCheckpoint(checkpoint);
+    }
+
+    public void exportChanges(String changesPath) {
+        File changesFile = getFileToWrite(changesPath);
+        Optional<Long> previousCheckpoint = backupDao.getCheckpoint();
+        if (!previousCheckpoint.isPresent()) {
+            throw new LiveDictionaryException("no backup to export changes against, make a full backup first");
+        }
+        long checkpoint = backupDao.getLastChangeId();
+        try {
+            final DataOutputStream out = openBackupStream(changesFile, CHANGES_MAGIC);
             try {
-                if (br != null) br.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
+                out.writeLong(previousCheckpoint.get());
+                out.writeLong(checkpoint);
+                backupDao.readChanges(previousCheckpoint.get(), checkpoint, new RecordWriter(out));
+                out.writeByte(END_OF_BACKUP);
+            } finally {
+                out.close();
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        return lines;
+        backupDao.saveCheckpoint(checkpoint);
     }
 
-    private void writeTranslations(String path, Collection<Translation> translations) throws IOException {
-        File fout = new File(path);
-        FileOutputStream fos = new FileOutputStream(fout);
+    private File getFileToWrite(String path) {
+        File file = new File(new File(path).getAbsolutePath());
+        if (!file.getParentFile().exists()) {
+            throw new RuntimeException("folder to back up to is not found");
+        }
+        return file;
+    }
 
-        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos));
+    private DataOutputStream openBackupStream(File file, int magic) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(new FileOutputStream(file), EXPORT_BUFFER_SIZE), EXPORT_BUFFER_SIZE));
+        out.writeInt(magic);
+        out.writeInt(BACKUP_FORMAT_VERSION);
+        return out;
+    }
 
-        for (Translation translation : translations) {
-            bw.write(translation.getForeignWord() + " - " + translation.getNativeWord());
-            bw.newLine();
+    public void restoreBackup(String backupPath, final ImportProgressListener listener) {
+        File backupFile = getFileToImport(backupPath);
+        final long totalBytes = backupFile.length();
+        try {
+            final CountingInputStream countingStream = new CountingInputStream(new FileInputStream(backupFile));
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(countingStream, EXPORT_BUFFER_SIZE), EXPORT_BUFFER_SIZE));
+            try {
+                int magic = in.readInt();
+                if (magic != BACKUP_MAGIC && magic != CHANGES_MAGIC) {
+                    throw new LiveDictionaryException("file is not a Live Dictionary backup");
+                }
+                int version = in.readInt();
+                if (version != BACKUP_FORMAT_VERSION && version != UTF_BACKUP_FORMAT_VERSION) {
+                    throw new LiveDictionaryException("unsupported backup version: " + version);
+                }
+                final RecordReader reader = new RecordReader(in, version, countingStream, totalBytes, listener);
+                if (magic == BACKUP_MAGIC) {
+                    backupDao.replaceAll(new BackupRowSource() {
+                        @Override
+                        public boolean readNext(BackupRowHandler handler) {
+                            return reader.readRecord(handler);
+                        }
+                    });
+                } else {
+                    in.readLong();
+                    in.readLong();
+                    backupDao.applyChanges(new ChangeSource() {
+                        @Override
+                        public boolean readNext(ChangeHandler handler) {
+                            return reader.readChange(handler);
+                        }
+                    });
+                }
+                listener.onProgress(totalBytes, totalBytes);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+    }
+
+    private static class RecordReader {
+        private final DataInputStream in;
+
+        private final int version;
+
+        private final CountingInputStream countingStream;
+
+        private final long totalBytes;
+
+        private final ImportProgressListener listener;
+
+        private int recordsRead = 0;
+
+        RecordReader(DataInputStream in, int version, CountingInputStream countingStream, long totalBytes,
+                     ImportProgressListener listener) {
+            this.in = in;
+            this.version = version;
+            this.countingStream = countingStream;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        boolean readRecord(BackupRowHandler handler) {
+            reportProgress();
+            try {
+                byte recordType = in.readByte();
+                if (recordType == END_OF_BACKUP) {
+                    return false;
+                }
+                if (!readRow(recordType, handler)) {
+                    throw new LiveDictionaryException("corrupted backup: unknown record type " + recordType);
+                }
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        boolean readChange(ChangeHandler handler) {
+            reportProgress();
+            try {
+                byte recordType = in.readByte();
+                switch (recordType) {
+                    case END_OF_BACKUP:
+                        return false;
+                    case DELETED_TRANSLATION_RECORD:
+                        handler.handleDeletedTranslation(in.readInt());
+                        return true;
+                    case DELETED_LABEL_RECORD:
+                        handler.handleDeletedLabel(in.readInt(), Label.fromId(in.readInt()));
+                        return true;
+                    case DELETED_ANSWER_RECORD:
+                        handler.handleDeletedAnswer(in.readLong());
+                        return true;
+                    default:
+                        if (!readRow(recordType, handler)) {
+                            throw new LiveDictionaryException("corrupted changes: unknown record type " + recordType);
+                        }
+                        return true;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void reportProgress() {
+            if (++recordsRead % RESTORE_PROGRESS_INTERVAL == 0) {
+                if (listener.isCancelled()) {
+                    throw new LiveDictionaryException("restore cancelled");
+                }
+                listener.onProgress(countingStream.getCount(), totalBytes);
+            }
+        }
+
+        private boolean readRow(byte recordType, BackupRowHandler handler) throws IOException {
+            switch (recordType) {
+                case TRANSLATION_RECORD:
+                    handler.handleTranslation(in.readInt(), readString(), readString());
+                    return true;
+                case LABEL_RECORD:
+                    handler.handleLabel(in.readInt(), Label.fromId(in.readInt()));
+                    return true;
+                case ANSWER_RECORD:
+                    long id = in.readLong();
+                    int translationId = in.readInt();
+                    Date timeAnswered = new Date(in.readLong());
+                    Answer answer = in.readBoolean() ? Answer.CORRECT : Answer.INCORRECT;
+                    Feedback feedback = in.readBoolean() ? Feedback.valueOf(readString()) : null;
+                    handler.handleAnswer(
+                        new LoggedAnswer(id, translationId, new AnswerAtTime(answer, timeAnswered, feedback)));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private String readString() throws IOException {
+            if (version == UTF_BACKUP_FORMAT_VERSION) {
+                return in.readUTF();
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, Charsets.UTF_8);
+        }
+    }
+
+    private static class RecordWriter implements ChangeHandler {
+        private final DataOutputStream out;
 
-        bw.close();
+        RecordWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void handleTranslation(int id, String foreignWord, String nativeWord) {
+            try {
+                out.writeByte(TRANSLATION_RECORD);
+                out.writeInt(id);
+                writeString(foreignWord);
+                writeString(nativeWord);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handleLabel(int translationId, Label label) {
+            try {
+                out.writeByte(LABEL_RECORD);
+                out.writeInt(translationId);
+                out.writeInt(label.getId());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handleAnswer(LoggedAnswer answer) {
+            AnswerAtTime answerAtTime = answer.getAnswerAtTime();
+            try {
+                out.writeByte(ANSWER_RECORD);
+                out.writeLong(answer.getId());
+                out.writeInt(answer.getTranslationId());
+                out.writeLong(answerAtTime.getTimepoint().getTime());
+                out.writeBoolean(answerAtTime.getAnswer().isCorrect());
+                out.writeBoolean(answerAtTime.getFeedback() != null);
+                if (answerAtTime.getFeedback() != null) {
+                    writeString(answerAtTime.getFeedback().name());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handleDeletedTranslation(int id) {
+            try {
+                out.writeByte(DELETED_TRANSLATION_RECORD);
+                out.writeInt(id);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handleDeletedLabel(int translationId, Label label) {
+            try {
+                out.writeByte(DELETED_LABEL_RECORD);
+                out.writeInt(translationId);
+                out.writeInt(label.getId());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handleDeletedAnswer(long id) {
+            try {
+                out.writeByte(DELETED_ANSWER_RECORD);
+                out.writeLong(id);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 }
@@ -1,19 +1,25 @@
 package uk.ignas.livedictionary.core;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.collect.Iterables;
 import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.answer.ReviewSchedule;
+import uk.ignas.livedictionary.core.answer.WriteBehindAnswerLogger;
 import uk.ignas.livedictionary.core.label.Label;
+import uk.ignas.livedictionary.core.label.LabelSet;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static uk.ignas.livedictionary.core.util.ExceptionAnalyser.isUniqueConstraintViolation;
@@ -25,6 +31,10 @@ public class Dictionary {
 
     public static final int PROBABILITY_OF_80_PERCENT = 80;
 
+    public static final int PLANNED_QUESTIONS = 5;
+
+    private static final Set<Label> EXCLUDING_LABELS = EnumSet.of(Label.A, Label.B);
+
     private TranslationDao translationDao;
 
     private final AnswerDao answerDao;
@@ -35,30 +45,85 @@ public class Dictionary {
 
     private Clock clock;
 
-    private final TranslationSelectionStrategy selectionStrategy;
+    private final SessionPlanner selectionStrategy;
+
+    private final Reminder reminder;
+
+    private final Map<Integer, Translation> translationsById = new LinkedHashMap<>();
+
+    private final Map<Translation, Integer> idsByWords = new HashMap<>();
+
+    private final Map<Label, BitSet> translationIdsByExcludingLabel = new EnumMap<>(Label.class);
+
+    private final WriteBehindAnswerLogger answerLogger;
+
+    private volatile DictionarySnapshot snapshot = DictionarySnapshot.EMPTY;
 
     public Dictionary(TranslationDao translationDao, AnswerDao answerDao, DaoObjectsFetcher fetcher, Labeler labeler,
                       Clock clock, TranslationSelectionStrategy selectionStrategy) {
+        this(translationDao, answerDao, fetcher, labeler, clock, selectionStrategy, null);
+    }
+
+    public Dictionary(TranslationDao translationDao, AnswerDao answerDao, DaoObjectsFetcher fetcher, Labeler labeler,
+                      Clock clock, TranslationSelectionStrategy selectionStrategy,
+                      WriteBehindAnswerLogger answerLogger) {
         this.translationDao = translationDao;
         this.answerDao = answerDao;
         this.fetcher = fetcher;
         this.labeler = labeler;
         this.clock = clock;
-        this.selectionStrategy = selectionStrategy;
+        this.selectionStrategy = new SessionPlanner(selectionStrategy, PLANNED_QUESTIONS);
+        this.reminder = new Reminder(clock);
+        this.answerLogger = answerLogger;
+        for (Label label : EXCLUDING_LABELS) {
+            translationIdsByExcludingLabel.put(label, new BitSet());
+        }
 
+        if (answerLogger != null) {
+            answerLogger.recover();
+        }
         reloadTranslations();
     }
 
     private void reloadTranslations() {
+        flushAnswers();
         List<Translation> translations = translationDao.getAllTranslations();
         fetcher.fetchAnswersLog(translations);
-        Collection<Translation> labelledA = labeler.getLabelled(Label.A);
-        Collection<Translation> labelledB = labeler.getLabelled(Label.B);
+        translationsById.clear();
+        idsByWords.clear();
+        for (BitSet translationIds : translationIdsByExcludingLabel.values()) {
+            translationIds.clear();
+        }
+        for (Translation translation : translations) {
+            remember(translation);
+        }
+        scheduleTranslationsWithoutSchedule(translations);
 
-        List<Translation> nonLabelledTranslations = new ArrayList<>(translations);
-        nonLabelledTranslations.removeAll(labelledA);
-        nonLabelledTranslations.removeAll(labelledB);
+        List<Translation> nonLabelledTranslations = new ArrayList<>(translationsById.size());
+        DictionarySnapshot reloaded = DictionarySnapshot.EMPTY;
+        for (Translation translation : translationsById.values()) {
+            boolean selectable = isSelectable(translation.getId());
+            if (selectable) {
+                nonLabelledTranslations.add(translation);
+            }
+            reloaded = reloaded.with(translation, selectable);
+        }
         selectionStrategy.updateState(nonLabelledTranslations);
+        snapshot = reloaded;
+    }
+
+    private void scheduleTranslationsWithoutSchedule(List<Translation> translations) {
+        Set<Integer> scheduledIds = answerDao.getTranslationIdsWithSchedule();
+        Map<Integer, ReviewSchedule> schedules = new HashMap<>();
+        for (Translation translation : translations) {
+            List<AnswerAtTime> answers = translation.getMetadata().getRecentAnswers();
+            if (!answers.isEmpty() && !scheduledIds.contains(translation.getId())) {
+                schedules.put(translation.getId(), reminder.getSchedule(answers));
+            }
+        }
+        if (!schedules.isEmpty()) {
+            answerDao.saveSchedules(schedules);
+        }
     }
 
     public Translation getRandomTranslation() {
@@ -70,61 +135,221 @@ public class Dictionary {
         }
     }
 
+    public void planAhead() {
+        selectionStrategy.planAhead();
+    }
+
     public void markAsAskedTooOften(Translation translation) {
-        boolean logged = answerDao.logAnswer(translation.getId(), new AnswerAtTime(Answer.CORRECT, clock.getTime(), Feedback.ASKED_TOO_OFTEN));
-        if (!logged) {
-            throw new IllegalArgumentException("answered not logged. translationId = " + translation.getId());
-        }
+        logAnswer(translation, new AnswerAtTime(Answer.CORRECT, clock.getTime(), Feedback.ASKED_TOO_OFTEN));
     }
 
     public void mark(Translation translation, Answer answer) {
-        boolean logged = answerDao.logAnswer(translation.getId(), new AnswerAtTime(answer, clock.getTime()));
+        logAnswer(translation, new AnswerAtTime(answer, clock.getTime()));
+    }
+
+    private void logAnswer(Translation translation, AnswerAtTime answerAtTime) {
+        boolean logged;
+        Translation known = translationsById.get(translation.getId());
+        if (known != null) {
+            List<AnswerAtTime> answers = new ArrayList<>(known.getMetadata().getRecentAnswers());
+            answers.add(answerAtTime);
+            ReviewSchedule schedule = reminder.getSchedule(answers);
+            if (answerLogger != null) {
+                answerLogger.log(known.getId(), answerAtTime, schedule);
+                known.getMetadata().getRecentAnswers().add(answerAtTime);
+                if (isSelectable(known.getId())) {
+                    selectionStrategy.refreshTranslation(known);
+                }
+                publish(known);
+                return;
+            }
+            logged = answerDao.logAnswer(translation.getId(), answerAtTime, schedule);
+        } else {
+            logged = answerDao.logAnswer(translation.getId(), answerAtTime);
+        }
         if (!logged) {
             throw new IllegalArgumentException("answered not logged. translationId = " + translation.getId());
         }
-        reloadData();
+        if (answerLogger != null) {
+            return;
+        }
+        for (Translation answered : fetcher.fetchNewAnswersLog(translationsById)) {
+            if (isSelectable(answered.getId())) {
+                selectionStrategy.refreshTranslation(answered);
+            }
+            publish(answered);
+        }
     }
 
     public void insert(Translation translation) {
-        translationDao.insertSingleWithLabels(translation);
-        reloadTranslations();
+        Optional<Integer> id = translationDao.insertSingleWithLabelsAndGetId(translation);
+        if (id.isPresent()) {
+            addToMemory(new Translation(id.get(), translation));
+        }
     }
 
-    public void delete(Translation translation) {
-        translationDao.delete(singleton(translation));
-        reloadTranslations();
+    private void addToMemory(Translation translation) {
+        remember(translation);
+        if (isSelectable(translation.getId())) {
+            selectionStrategy.addTranslation(translation);
+        }
+        publish(translation);
     }
 
-    public boolean update(Translation translation) {
-        boolean updated = updateSingle(translation);
-        reloadTranslations();
-        return updated;
+    private void remember(Translation translation) {
+        translationsById.put(translation.getId(), translation);
+        idsByWords.put(translation, translation.getId());
+        rememberExcludingLabels(translation);
     }
 
-    private boolean updateSingle(Translation translation) {
-        List<Translation> translations = translationDao.getAllTranslations();
+    public void flushAnswers() {
+        if (answerLogger != null) {
+            answerLogger.flush();
+        }
+    }
 
-        boolean updated = getIds(translations).contains(translation.getId());
+    public void delete(Translation translation) {
+        flushAnswers();
+        translationDao.delete(singleton(translation));
+        fetcher.rewindAnswersLogAfterDeletion();
+        forget(translation.getId(), translation);
+    }
+
+    public boolean update(Translation translation) {
+        Translation previous = translationsById.get(translation.getId());
+        boolean updated;
         try {
-            translationDao.updateAlongWithLabels(translation);
+            updated = translationDao.updateAlongWithLabels(translation) > 0;
         } catch (Exception e) {
             if (isUniqueConstraintViolation(e)) {
+                flushAnswers();
                 translationDao.delete(asList(translation));
+                fetcher.rewindAnswersLogAfterDeletion();
+                forget(translation.getId(), translation);
+                return true;
             } else {
                 throw e;
             }
         }
+        if (updated && previous != null) {
+            applyUpdate(previous, translation);
+        } else if (updated && !isDuplicateOfAnotherTranslation(translation)) {
+            addToMemory(copyWithAnswers(translation, new ArrayList<AnswerAtTime>()));
+        } else if (!updated && previous != null) {
+            forget(previous.getId(), previous);
+        }
         return updated;
     }
 
-    private List<Integer> getIds(List<Translation> translations) {
-        return newArrayList(Iterables.transform(translations, new Function<Translation, Integer>() {
+    private void applyUpdate(Translation previous, Translation translation) {
+        if (isDuplicateOfAnotherTranslation(translation)) {
+            forget(previous.getId(), previous);
+            return;
+        }
+        Translation current = copyWithAnswers(translation, previous.getMetadata().getRecentAnswers());
+        boolean wasSelectable = isSelectable(previous.getId());
+
+        idsByWords.remove(previous);
+        remember(current);
+        boolean isSelectable = isSelectable(current.getId());
+
+        if (wasSelectable && isSelectable) {
+            selectionStrategy.replaceTranslation(previous, current);
+        } else if (wasSelectable) {
+            selectionStrategy.removeTranslation(previous);
+        } else if (isSelectable) {
+            selectionStrategy.addTranslation(current);
+        }
+        publish(current);
+    }
+
+    private Translation copyWithAnswers(Translation translation, List<AnswerAtTime> answers) {
+        TranslationMetadata metadata = new TranslationMetadata(answers);
+        metadata.getLabels().addAll(translation.getMetadata().getLabels());
+        return new Translation(translation.getId(), translation.getForeignWord(), translation.getNativeWord(),
+                               metadata);
+    }
 
-            @Override
-            public Integer apply(Translation translation) {
-                return translation.getId();
+    private boolean isDuplicateOfAnotherTranslation(Translation translation) {
+        Integer id = idsByWords.get(translation);
+        return id != null && !id.equals(translation.getId());
+    }
+
+    public List<Translation> getLabelledPage(Label label, int afterId, int pageSize) {
+        return labeler.getLabelledPage(label, afterId, pageSize);
+    }
+
+    public void addLabel(Translation translation, Label label) {
+        labeler.addLabel(translation, label);
+        Translation known = translationsById.get(translation.getId());
+        if (known == null) {
+            return;
+        }
+        known.getMetadata().getLabels().add(label);
+        if (EXCLUDING_LABELS.contains(label)) {
+            boolean wasSelectable = isSelectable(known.getId());
+            translationIdsByExcludingLabel.get(label).set(known.getId());
+            if (wasSelectable) {
+                selectionStrategy.removeTranslation(known);
             }
-        }));
+        }
+        publish(known);
+    }
+
+    public void removeLabel(Translation translation, Label label) {
+        labeler.removeLabel(translation, label);
+        Translation known = translationsById.get(translation.getId());
+        if (known == null) {
+            return;
+        }
+        known.getMetadata().getLabels().remove(label);
+        if (EXCLUDING_LABELS.contains(label)) {
+            boolean wasSelectable = isSelectable(known.getId());
+            translationIdsByExcludingLabel.get(label).clear(known.getId());
+            if (!wasSelectable && isSelectable(known.getId())) {
+                selectionStrategy.addTranslation(known);
+            }
+        }
+        publish(known);
+    }
+
+    private void rememberExcludingLabels(Translation translation) {
+        LabelSet labels = translation.getMetadata().getLabels();
+        for (Map.Entry<Label, BitSet> entry : translationIdsByExcludingLabel.entrySet()) {
+            entry.getValue().set(translation.getId(), labels.contains(entry.getKey()));
+        }
+    }
+
+    private void forget(Integer id, Translation translation) {
+        Translation known = translationsById.remove(id);
+        if (known != null) {
+            idsByWords.remove(known);
+        }
+        boolean wasSelectable = isSelectable(id);
+        for (BitSet translationIds : translationIdsByExcludingLabel.values()) {
+            translationIds.clear(id);
+        }
+        if (wasSelectable) {
+            selectionStrategy.removeTranslation(known != null ? known : translation);
+        }
+        snapshot = snapshot.without(id);
+    }
+
+    private void publish(Translation translation) {
+        snapshot = snapshot.with(translation, isSelectable(translation.getId()));
+    }
+
+    public DictionarySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private boolean isSelectable(Integer id) {
+        for (BitSet translationIds : translationIdsByExcludingLabel.values()) {
+            if (translationIds.get(id)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void reloadData() {
@@ -0,0 +1,158 @@
+package uk.ignas.livedictionary.core;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Random;
+
+public final class DictionarySnapshot {
+    private static final int BITS = 5;
+
+    private static final int WIDTH = 1 << BITS;
+
+    private static final int MASK = WIDTH - 1;
+
+    public static final DictionarySnapshot EMPTY = new DictionarySnapshot(Node.leaf(new Object[WIDTH], 0), 0);
+
+    private final Node root;
+
+    private final int shift;
+
+    private DictionarySnapshot(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    public int getTranslationCount() {
+        return root.count;
+    }
+
+    public int getSelectableCount() {
+        return root.selectableCount;
+    }
+
+    public Translation getTranslation(int id) {
+        if ((id >>> shift) > MASK) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.slots[(id >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Translation) node.slots[id & MASK];
+    }
+
+    public Optional<Translation> pickRandom(Random random) {
+        if (root.selectableCount == 0) {
+            return Optional.absent();
+        }
+        int index = random.nextInt(root.selectableCount);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            for (Object slot : node.slots) {
+                Node child = (Node) slot;
+                if (child == null) {
+                    continue;
+                }
+                if (index < child.selectableCount) {
+                    node = child;
+                    break;
+                }
+                index -= child.selectableCount;
+            }
+        }
+        int selectableBits = node.selectableBits;
+        for (int i = 0; i < index; i++) {
+            selectableBits &= selectableBits - 1;
+        }
+        return Optional.of((Translation) node.slots[Integer.numberOfTrailingZeros(selectableBits)]);
+    }
+
+    DictionarySnapshot with(Translation translation, boolean selectable) {
+        int id = translation.getId();
+        Node newRoot = root;
+        int newShift = shift;
+        while ((id >>> newShift) > MASK) {
+            Object[] slots = new Object[WIDTH];
+            slots[0] = newRoot.count > 0 ? newRoot : null;
+            newRoot = Node.inner(slots);
+            newShift += BITS;
+        }
+        return new DictionarySnapshot(set(newRoot, newShift, id, freeze(translation), selectable), newShift);
+    }
+
+    DictionarySnapshot without(int id) {
+        if (getTranslation(id) == null) {
+            return this;
+        }
+        return new DictionarySnapshot(set(root, shift, id, null, false), shift);
+    }
+
+    private static Node set(Node node, int level, int id, Translation translation, boolean selectable) {
+        Object[] slots = node != null ? node.slots.clone() : new Object[WIDTH];
+        int slot = (id >>> level) & MASK;
+        if (level == 0) {
+            slots[slot] = translation;
+            int selectableBits = node != null ? node.selectableBits : 0;
+            if (translation != null && selectable) {
+                selectableBits |= 1 << slot;
+            } else {
+                selectableBits &= ~(1 << slot);
+            }
+            return Node.leaf(slots, selectableBits);
+        }
+        Node child = set((Node) slots[slot], level - BITS, id, translation, selectable);
+        slots[slot] = child.count > 0 ? child : null;
+        return Node.inner(slots);
+    }
+
+    private static Translation freeze(Translation translation) {
+        TranslationMetadata metadata =
+            new TranslationMetadata(ImmutableList.copyOf(translation.getMetadata().getRecentAnswers()));
+        metadata.getLabels().setMask(translation.getMetadata().getLabels().getMask());
+        return new Translation(translation.getId(), translation.getForeignWord(), translation.getNativeWord(),
+                               metadata);
+    }
+
+    private static final class Node {
+        private final Object[] slots;
+
+        private final int count;
+
+        private final int selectableCount;
+
+        private final int selectableBits;
+
+        private Node(Object[] slots, int count, int selectableCount, int selectableBits) {
+            this.slots = slots;
+            this.count = count;
+            this.selectableCount = selectableCount;
+            this.selectableBits = selectableBits;
+        }
+
+        static Node leaf(Object[] slots, int selectableBits) {
+            int count = 0;
+            for (Object slot : slots) {
+                if (slot != null) {
+                    count++;
+                }
+            }
+            return new Node(slots, count, Integer.bitCount(selectableBits), selectableBits);
+        }
+
+        static Node inner(Object[] slots) {
+            int count = 0;
+            int selectableCount = 0;
+            for (Object slot : slots) {
+                if (slot != null) {
+                    count += ((Node) slot).count;
+                    selectableCount += ((Node) slot).selectableCount;
+                }
+            }
+            return new Node(slots, count, selectableCount, 0);
+        }
+    }
+}
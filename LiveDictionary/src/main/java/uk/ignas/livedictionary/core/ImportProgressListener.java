@@ -0,0 +1,18 @@
+package uk.ignas.livedictionary.core;
+
+public interface ImportProgressListener {
+    ImportProgressListener NONE = new ImportProgressListener() {
+        @Override
+        public void onProgress(long bytesRead, long totalBytes) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    void onProgress(long bytesRead, long totalBytes);
+
+    boolean isCancelled();
+}
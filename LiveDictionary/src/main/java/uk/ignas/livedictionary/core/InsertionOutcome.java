@@ -0,0 +1,23 @@
+package uk.ignas.livedictionary.core;
+
+public class InsertionOutcome {
+    private final Translation translation;
+    private final Integer id;
+
+    public InsertionOutcome(Translation translation, Integer id) {
+        this.translation = translation;
+        this.id = id;
+    }
+
+    public Translation getTranslation() {
+        return translation;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public boolean isDuplicate() {
+        return id == null;
+    }
+}
@@ -1,53 +1,65 @@
 package uk.ignas.livedictionary.core;
 
-import android.database.sqlite.SQLiteException;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
-
-import static uk.ignas.livedictionary.core.util.ExceptionAnalyser.isUniqueConstraintViolation;
+import java.util.Set;
 
 public class Labeler {
     private final TranslationDao translationDao;
-    private final DaoObjectsFetcher fetcher;
 
     private final LabelDao labelDao;
 
-    public Labeler(TranslationDao translationDao, DaoObjectsFetcher fetcher, LabelDao labelDao) {
+    public Labeler(TranslationDao translationDao, LabelDao labelDao) {
         this.translationDao = translationDao;
-        this.fetcher = fetcher;
         this.labelDao = labelDao;
     }
 
     public void addLabel(Translation translation, Label label) {
-        try {
-            labelDao.addLabelledTranslation(translation.getId(), label);
-        } catch (Exception e) {
-            rejectDuplicateLabelSilently(e);
-        }
+        labelDao.addLabelledTranslation(translation.getId(), label);
     }
 
-    private void rejectDuplicateLabelSilently(Exception e) {
-        if (!isUniqueConstraintViolation(e)) {
-            throw new SQLiteException("Cannot set label", e);
-        }
+    public int addLabel(Collection<Translation> translations, Label label) {
+        return labelDao.addLabelledTranslations(collectIds(translations), label);
+    }
+
+    public int labelAnsweredIncorrectlyAtLeast(int times, Label label) {
+        return labelDao.labelTranslationsAnsweredIncorrectlyAtLeast(times, label);
     }
 
     public Collection<Translation> getLabelled(Label label) {
-        List<Translation> translations = translationDao.getAllTranslations();
-        fetcher.fetchLabels(translations);
-        for (Translation t : new ArrayList<>(translations)) {
-            if (!t.getMetadata().getLabels().contains(label)) {
-                translations.remove(t);
-            }
-        }
-        return translations;
+        return getLabelledWithAnyOf(EnumSet.of(label));
+    }
+
+    public List<Translation> getLabelledPage(Label label, int afterId, int pageSize) {
+        return translationDao.getTranslationsWithLabelPage(label, afterId, pageSize);
+    }
+
+    public Collection<Translation> getLabelledWithAnyOf(Set<Label> labels) {
+        return translationDao.getTranslationsWithAnyOfLabels(labels);
+    }
+
+    public Collection<Translation> getLabelledWithNoneOf(Set<Label> labels) {
+        return translationDao.getTranslationsWithoutLabels(labels);
     }
 
     public void removeLabel(Translation translation, Label label) {
         labelDao.deleteLabelledTranslation(translation.getId(), label);
     }
+
+    public int removeLabel(Collection<Translation> translations, Label label) {
+        return labelDao.deleteLabelledTranslations(collectIds(translations), label);
+    }
+
+    private List<Integer> collectIds(Collection<Translation> translations) {
+        List<Integer> ids = new ArrayList<>(translations.size());
+        for (Translation translation : translations) {
+            ids.add(translation.getId());
+        }
+        return ids;
+    }
 }
@@ -0,0 +1,18 @@
+package uk.ignas.livedictionary.core;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+public class NothingDueException extends LiveDictionaryException {
+    private final Date nextDueTime;
+
+    public NothingDueException(Date nextDueTime) {
+        super("There are no more difficult words. Next translation is due at " +
+              DateFormat.getDateTimeInstance().format(nextDueTime));
+        this.nextDueTime = nextDueTime;
+    }
+
+    public Date getNextDueTime() {
+        return nextDueTime;
+    }
+}
@@ -2,39 +2,249 @@ package uk.ignas.livedictionary.core;
 
 import com.google.common.base.Optional;
 import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerDao;
+import uk.ignas.livedictionary.core.util.IndexedPool;
 
 import java.util.*;
 
 public class PreferNewestTranslationSelectionStrategy implements TranslationSelectionStrategy {
-    private List<Translation> translations = new ArrayList<>();
+    private static final int NO_RANK = Integer.MAX_VALUE;
 
-    private final Set<Translation> difficultTranslations = new HashSet<>();
+    private final List<Translation> translationsByAge = new ArrayList<>();
 
-    private List<Translation> veryEasyTranslations = new ArrayList<>();
+    private final Map<Translation, Integer> ranks = new HashMap<>();
+
+    private int withdrawnRanks;
+
+    private final BitSet ranksOfEasyTranslations = new BitSet();
+
+    private final IndexedPool<Translation> newestTranslations = new IndexedPool<>();
+
+    private final IndexedPool<Translation> olderTranslations = new IndexedPool<>();
+
+    private int lowestRankOfNewest = NO_RANK;
+
+    private final IndexedPool<Translation> difficultTranslations = new IndexedPool<>();
+
+    private final Map<Translation, Restriction> restrictedTranslations = new HashMap<>();
+
+    private final PriorityQueue<Restriction> restrictionsByEnd = new PriorityQueue<>();
 
     private final Reminder reminder;
 
-    private final Random random = new Random();
+    private final Clock clock;
 
+    private final AnswerDao answerDao;
+
+    private final Random random = new Random();
 
     public PreferNewestTranslationSelectionStrategy(Clock clock) {
-        reminder = new Reminder(clock);
+        this(clock, null);
+    }
+
+    public PreferNewestTranslationSelectionStrategy(Clock clock, AnswerDao answerDao) {
+        this.reminder = new Reminder(clock);
+        this.clock = clock;
+        this.answerDao = answerDao;
     }
 
     @Override
     public void updateState(List<Translation> translationsGiven) {
-        List<Translation> translations;
-        translations = translationsGiven;
-        Collections.reverse(translations);
-        this.difficultTranslations.clear();
-        for (Translation t : new ArrayList<>(translations)) {
-            TranslationMetadata metadata = t.getMetadata();
-            if (!isLastAnswerCorrect(metadata)) {
-                translations.remove(t);
+        translationsByAge.clear();
+        ranks.clear();
+        withdrawnRanks = 0;
+        ranksOfEasyTranslations.clear();
+        newestTranslations.clear();
+        olderTranslations.clear();
+        lowestRankOfNewest = NO_RANK;
+        difficultTranslations.clear();
+        restrictedTranslations.clear();
+        restrictionsByEnd.clear();
+
+        Date now = clock.getTime();
+        Map<Integer, Date> restrictedUntilByTranslationId = getRestrictedTranslations(now);
+        for (Translation t : translationsGiven) {
+            int rank = assignRank(t);
+            Date restrictedUntil = answerDao != null ?
+                                   restrictedUntilByTranslationId.get(t.getId()) :
+                                   reminder.getSchedule(t.getMetadata().getRecentAnswers()).getRestrictedUntil();
+            if (!isLastAnswerCorrect(t.getMetadata())) {
                 difficultTranslations.add(t);
+            } else if (restrictedUntil != null && now.before(restrictedUntil)) {
+                restrict(t, restrictedUntil);
+            } else {
+                ranksOfEasyTranslations.set(rank);
+            }
+        }
+        fillNewestAndOlderTranslations();
+    }
+
+    private void fillNewestAndOlderTranslations() {
+        for (int rank = ranksOfEasyTranslations.previousSetBit(translationsByAge.size() - 1);
+             rank >= 0;
+             rank = ranksOfEasyTranslations.previousSetBit(rank - 1)) {
+            Translation translation = translationsByAge.get(rank);
+            if (newestTranslations.size() < Dictionary.NEWEST_100_QUESTIONS) {
+                newestTranslations.add(translation);
+                lowestRankOfNewest = rank;
+            } else {
+                olderTranslations.add(translation);
             }
         }
-        this.translations = translations;
+    }
+
+    private int assignRank(Translation translation) {
+        Integer rank = ranks.get(translation);
+        if (rank == null) {
+            rank = translationsByAge.size();
+            translationsByAge.add(translation);
+            ranks.put(translation, rank);
+        }
+        return rank;
+    }
+
+    private Map<Integer, Date> getRestrictedTranslations(Date now) {
+        if (answerDao == null) {
+            return Collections.emptyMap();
+        }
+        return answerDao.getTranslationsRestrictedAt(now);
+    }
+
+    @Override
+    public void addTranslation(Translation translation) {
+        int rank = assignRank(translation);
+        Date restrictedUntil = reminder.getSchedule(translation.getMetadata().getRecentAnswers()).getRestrictedUntil();
+        if (!isLastAnswerCorrect(translation.getMetadata())) {
+            difficultTranslations.add(translation);
+        } else if (restrictedUntil != null && clock.getTime().before(restrictedUntil)) {
+            restrict(translation, restrictedUntil);
+        } else {
+            addEasyTranslation(translation, rank);
+        }
+    }
+
+    @Override
+    public void removeTranslation(Translation translation) {
+        withdraw(translation);
+        Integer rank = ranks.remove(translation);
+        if (rank != null) {
+            translationsByAge.set(rank, null);
+            withdrawnRanks++;
+            if (withdrawnRanks > translationsByAge.size() / 2) {
+                compactRanks();
+            }
+        }
+    }
+
+    private void compactRanks() {
+        List<Translation> remaining = new ArrayList<>(translationsByAge.size() - withdrawnRanks);
+        BitSet easyRanks = new BitSet();
+        int compactedLowestRankOfNewest = NO_RANK;
+        for (Translation translation : translationsByAge) {
+            if (translation == null) {
+                continue;
+            }
+            int rank = ranks.get(translation);
+            int compactedRank = remaining.size();
+            remaining.add(translation);
+            ranks.put(translation, compactedRank);
+            if (ranksOfEasyTranslations.get(rank)) {
+                easyRanks.set(compactedRank);
+            }
+            if (rank == lowestRankOfNewest) {
+                compactedLowestRankOfNewest = compactedRank;
+            }
+        }
+        translationsByAge.clear();
+        translationsByAge.addAll(remaining);
+        ranksOfEasyTranslations.clear();
+        ranksOfEasyTranslations.or(easyRanks);
+        lowestRankOfNewest = compactedLowestRankOfNewest;
+        withdrawnRanks = 0;
+    }
+
+    @Override
+    public void replaceTranslation(Translation previous, Translation current) {
+        withdraw(previous);
+        Integer rank = ranks.remove(previous);
+        if (rank != null) {
+            translationsByAge.set(rank, current);
+            ranks.put(current, rank);
+        }
+        addTranslation(current);
+    }
+
+    private void withdraw(Translation translation) {
+        Integer rank = ranks.get(translation);
+        if (rank != null && ranksOfEasyTranslations.get(rank)) {
+            removeEasyTranslation(translation, rank);
+        }
+        difficultTranslations.remove(translation);
+        restrictedTranslations.remove(translation);
+    }
+
+    @Override
+    public void refreshTranslation(Translation translation) {
+        replaceTranslation(translation, translation);
+    }
+
+    private void restrict(Translation translation, Date restrictedUntil) {
+        Restriction restriction = new Restriction(translation, restrictedUntil);
+        restrictedTranslations.put(translation, restriction);
+        restrictionsByEnd.add(restriction);
+    }
+
+    private void releaseTranslationsNoLongerRestricted(Date now) {
+        Restriction restriction = peekValidRestriction();
+        while (restriction != null && !now.before(restriction.until)) {
+            restrictionsByEnd.poll();
+            restrictedTranslations.remove(restriction.translation);
+            addEasyTranslation(restriction.translation, ranks.get(restriction.translation));
+            restriction = peekValidRestriction();
+        }
+    }
+
+    private Restriction peekValidRestriction() {
+        Restriction restriction = restrictionsByEnd.peek();
+        while (restriction != null && restrictedTranslations.get(restriction.translation) != restriction) {
+            restrictionsByEnd.poll();
+            restriction = restrictionsByEnd.peek();
+        }
+        return restriction;
+    }
+
+    private void addEasyTranslation(Translation translation, int rank) {
+        ranksOfEasyTranslations.set(rank);
+        if (newestTranslations.size() < Dictionary.NEWEST_100_QUESTIONS) {
+            newestTranslations.add(translation);
+            lowestRankOfNewest = Math.min(lowestRankOfNewest, rank);
+        } else if (rank > lowestRankOfNewest) {
+            newestTranslations.add(translation);
+            Translation noLongerNewest = translationsByAge.get(lowestRankOfNewest);
+            newestTranslations.remove(noLongerNewest);
+            olderTranslations.add(noLongerNewest);
+            lowestRankOfNewest = ranksOfEasyTranslations.nextSetBit(lowestRankOfNewest + 1);
+        } else {
+            olderTranslations.add(translation);
+        }
+    }
+
+    private void removeEasyTranslation(Translation translation, int rank) {
+        ranksOfEasyTranslations.clear(rank);
+        if (newestTranslations.remove(translation)) {
+            if (!olderTranslations.isEmpty()) {
+                int newestOfOlderRank = ranksOfEasyTranslations.previousSetBit(lowestRankOfNewest - 1);
+                Translation becameNewest = translationsByAge.get(newestOfOlderRank);
+                olderTranslations.remove(becameNewest);
+                newestTranslations.add(becameNewest);
+                lowestRankOfNewest = newestOfOlderRank;
+            } else if (rank == lowestRankOfNewest) {
+                int nextRank = ranksOfEasyTranslations.nextSetBit(rank + 1);
+                lowestRankOfNewest = nextRank >= 0 ? nextRank : NO_RANK;
+            }
+        } else {
+            olderTranslations.remove(translation);
+        }
     }
 
     private boolean isLastAnswerCorrect(TranslationMetadata metadata) {
@@ -48,29 +258,24 @@ public class PreferNewestTranslationSelectionStrategy implements TranslationSele
 
     @Override
     public Optional<Translation> selectTranslation() {
-        if (translations.size() == 0 && difficultTranslations.size() == 0 && veryEasyTranslations.size() == 0) {
-            return Optional.absent();
-        }
-        Translation translationToReturn = null;
-        while (translationToReturn == null) {
-            Translation candidateTranslation = chooseTranslationPreferingDifficultOrNewer();
-
-            if (reminder.shouldBeReminded(candidateTranslation.getMetadata())) {
-                translationToReturn = candidateTranslation;
-            } else {
-                veryEasyTranslations.add(candidateTranslation);
-                translations.remove(candidateTranslation);
+        releaseTranslationsNoLongerRestricted(clock.getTime());
+        if (countEasyTranslations() == 0 && difficultTranslations.size() == 0) {
+            Restriction restriction = peekValidRestriction();
+            if (restriction == null) {
+                return Optional.absent();
             }
+            throw new NothingDueException(restriction.until);
         }
-        return Optional.of(translationToReturn);
+        return Optional.of(chooseTranslationPreferingDifficultOrNewer());
+    }
+
+    private int countEasyTranslations() {
+        return newestTranslations.size() + olderTranslations.size();
     }
 
     private Translation chooseTranslationPreferingDifficultOrNewer() {
-        if (translations.size() == 0 && difficultTranslations.size() == 0) {
-            throw new LiveDictionaryException("There are no more difficult words");
-        }
         Translation translationToReturn;
-        if (translations.size() == 0 || difficultTranslations.size() > 0 && difficultTranslations.size() > random
+        if (countEasyTranslations() == 0 || difficultTranslations.size() > 0 && difficultTranslations.size() > random
             .nextInt(Dictionary.DIFFICULT_TRANSLATIONS_LIMIT))
         {
             translationToReturn = getRandomDifficultTranslation();
@@ -81,16 +286,13 @@ public class PreferNewestTranslationSelectionStrategy implements TranslationSele
     }
 
     private Translation getRandomDifficultTranslation() {
-        ArrayList<Translation> translations = new ArrayList<>(difficultTranslations);
-        Collections.shuffle(translations);
-        return translations.get(0);
+        return difficultTranslations.pickRandom(random);
     }
 
     private Translation chooseTranslationPreferringNewer() {
         Translation translationToReturn;
-        int size = translations.size();
-        if (size <= Dictionary.NEWEST_100_QUESTIONS) {
-            translationToReturn = translations.get(random.nextInt(size));
+        if (olderTranslations.isEmpty()) {
+            translationToReturn = newestTranslations.pickRandom(random);
         } else {
             if (is80PercentOfTimes()) {
                 translationToReturn = getOneOfTheNewest100Translations();
@@ -106,12 +308,25 @@ public class PreferNewestTranslationSelectionStrategy implements TranslationSele
     }
 
     private Translation getOneOfTheNewest100Translations() {
-        return translations.get(random.nextInt(Dictionary.NEWEST_100_QUESTIONS));
+        return newestTranslations.pickRandom(random);
     }
 
     private Translation getTranslationNotOutOf100Newest() {
-        int randomGreaterOrEqualsTo100 =
-            random.nextInt(translations.size() - Dictionary.NEWEST_100_QUESTIONS) + Dictionary.NEWEST_100_QUESTIONS;
-        return translations.get(randomGreaterOrEqualsTo100);
+        return olderTranslations.pickRandom(random);
+    }
+
+    private static class Restriction implements Comparable<Restriction> {
+        private final Translation translation;
+        private final Date until;
+
+        Restriction(Translation translation, Date until) {
+            this.translation = translation;
+            this.until = until;
+        }
+
+        @Override
+        public int compareTo(Restriction other) {
+            return until.compareTo(other.until);
+        }
     }
 }
@@ -3,6 +3,7 @@ package uk.ignas.livedictionary.core;
 import com.google.common.collect.ImmutableMap;
 import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.answer.ReviewSchedule;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -55,24 +56,24 @@ public class Reminder {
     }
 
     public boolean shouldBeReminded(TranslationMetadata metadata) {
-        return !restrictedByPromotionPeriod(metadata);
+        return !getSchedule(metadata.getRecentAnswers()).isRestrictedAt(clock.getTime());
     }
 
-    private boolean restrictedByPromotionPeriod(TranslationMetadata metadata) {
+    public ReviewSchedule getSchedule(List<AnswerAtTime> answers) {
+        TranslationMetadata metadata = new TranslationMetadata(answers);
         List<List<AnswerAtTime>> promotionPeriodJumpers = getPromotionPeriodsJumpingGroups(metadata);
+        boolean lastAnswerCorrect = answers.isEmpty() || getLast(answers).getAnswer() == Answer.CORRECT;
         if (!promotionPeriodJumpers.isEmpty()) {
             int promotionDurationInHours = findCurrentPromotionDurationInHours(promotionPeriodJumpers);
             List<AnswerAtTime> promotionPeriodsJumper = getLast(promotionPeriodJumpers);
-            return groupStillRestricted(promotionDurationInHours, promotionPeriodsJumper);
+            Date restrictedUntil = new Date(promotionPeriodsJumper.get(0).getTimepoint().getTime() +
+                                            TimeUnit.HOURS.toMillis(promotionDurationInHours));
+            return new ReviewSchedule(promotionPeriodJumpers.size(), restrictedUntil, lastAnswerCorrect);
         } else {
-            return false;
+            return new ReviewSchedule(0, null, lastAnswerCorrect);
         }
     }
 
-    private boolean groupStillRestricted(int promotionDurationInHours, List<AnswerAtTime> promotionPeriodsJumper) {
-        return !promotionPeriodsJumper.isEmpty() && isMessagesNewerThanNHours(promotionPeriodsJumper.get(0), promotionDurationInHours);
-    }
-
     private int findCurrentPromotionDurationInHours(List<List<AnswerAtTime>> promotionPeriodsJumpers) {
         int promotionDurationInHours = promotionDuration.getHoursByLevel(0);
         for (int promotionLevel = 0; promotionLevel < promotionPeriodsJumpers.size(); promotionLevel++) {
@@ -112,10 +113,6 @@ public class Reminder {
         return groups;
     }
 
-    private boolean isMessagesNewerThanNHours(AnswerAtTime answerAtTime, int hours) {
-        return TimeUnit.MILLISECONDS.toHours(clock.getTime().getTime() - answerAtTime.getTimepoint().getTime()) < hours;
-    }
-
     private List<List<AnswerAtTime>> findMsgGroupsFittingPeriodsInOrder(List<AnswerAtTime> messages,
                                                                         MsgCountAndNumOfHours countInPeriod0,
                                                                         MsgCountAndNumOfHours countInPeriod1) {
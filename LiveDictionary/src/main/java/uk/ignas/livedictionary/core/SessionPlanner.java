@@ -0,0 +1,91 @@
+package uk.ignas.livedictionary.core;
+
+import com.google.common.base.Optional;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+public class SessionPlanner implements TranslationSelectionStrategy {
+    private final TranslationSelectionStrategy strategy;
+
+    private final int plannedQuestions;
+
+    private final Deque<Translation> plan = new ArrayDeque<>();
+
+    public SessionPlanner(TranslationSelectionStrategy strategy, int plannedQuestions) {
+        if (plannedQuestions <= 0) {
+            throw new IllegalArgumentException("planned questions should be positive, was " + plannedQuestions);
+        }
+        this.strategy = strategy;
+        this.plannedQuestions = plannedQuestions;
+    }
+
+    public void planAhead() {
+        while (plan.size() < plannedQuestions) {
+            Optional<Translation> next;
+            try {
+                next = strategy.selectTranslation();
+            } catch (NothingDueException e) {
+                return;
+            }
+            if (!next.isPresent() || plan.contains(next.get())) {
+                return;
+            }
+            plan.addLast(next.get());
+        }
+    }
+
+    public int getPlannedCount() {
+        return plan.size();
+    }
+
+    @Override
+    public void updateState(List<Translation> translations) {
+        plan.clear();
+        strategy.updateState(translations);
+    }
+
+    @Override
+    public void addTranslation(Translation translation) {
+        plan.clear();
+        strategy.addTranslation(translation);
+    }
+
+    @Override
+    public void removeTranslation(Translation translation) {
+        unplan(translation);
+        strategy.removeTranslation(translation);
+    }
+
+    @Override
+    public void replaceTranslation(Translation previous, Translation current) {
+        unplan(previous);
+        strategy.replaceTranslation(previous, current);
+    }
+
+    @Override
+    public void refreshTranslation(Translation translation) {
+        unplan(translation);
+        strategy.refreshTranslation(translation);
+    }
+
+    @Override
+    public Optional<Translation> selectTranslation() {
+        Translation planned = plan.pollFirst();
+        if (planned != null) {
+            return Optional.of(planned);
+        }
+        return strategy.selectTranslation();
+    }
+
+    private void unplan(Translation translation) {
+        Iterator<Translation> planned = plan.iterator();
+        while (planned.hasNext()) {
+            if (planned.next().equals(translation)) {
+                planned.remove();
+            }
+        }
+    }
+}
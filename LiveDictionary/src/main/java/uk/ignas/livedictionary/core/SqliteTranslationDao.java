@@ -3,18 +3,24 @@ package uk.ignas.livedictionary.core;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteConstraintException;
-import org.apache.commons.lang.BooleanUtils;
-import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import android.database.sqlite.SQLiteStatement;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
+import uk.ignas.livedictionary.core.label.LabelSet;
+import uk.ignas.livedictionary.core.label.SqliteLabelDao.LabelledTranslation;
 import uk.ignas.livedictionary.core.util.DatabaseFacade;
+import uk.ignas.livedictionary.core.util.RowCallback;
+import uk.ignas.livedictionary.core.util.RowMapper;
 import uk.ignas.livedictionary.core.util.Transactable;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.Arrays.asList;
 import static org.apache.commons.lang.Validate.notNull;
@@ -23,6 +29,23 @@ public class SqliteTranslationDao implements TranslationDao {
 
     public static final int ERROR_OCURRED = -1;
 
+    public static final int INSERTION_BATCH_SIZE = 500;
+
+    private static final String SELECT_TRANSLATIONS = "select " +
+                                                      Translations.ID + ", " +
+                                                      Translations.FOREIGN_WORD + ", " +
+                                                      Translations.NATIVE_WORD + ", " +
+                                                      Translations.LABEL_MASK +
+                                                      " from " + Translations.TABLE_NAME;
+
+    private static final String INSERT_TRANSLATION = "insert or ignore into " + Translations.TABLE_NAME + " (" +
+                                                     Translations.NATIVE_WORD + ", " +
+                                                     Translations.FOREIGN_WORD + ") values (?, ?)";
+
+    private static final String INSERT_LABEL = "insert into " + LabelledTranslation.TABLE_NAME + " (" +
+                                               LabelledTranslation.TRANSLATION_ID + ", " +
+                                               LabelledTranslation.LABEL_ID + ") values (?, ?)";
+
     private final LabelDao labelDao;
 
     private final DatabaseFacade databaseFacade;
@@ -37,9 +60,17 @@ public class SqliteTranslationDao implements TranslationDao {
         public static final String NATIVE_WORD = "nativeWord";
 
         public static final String FOREIGN_WORD = "foreignWord";
+
+        public static final String LABEL_MASK = "label_mask";
     }
 
+    private static class Staging {
+        public static final String TABLE_NAME = "import_staging";
 
+        public static final String NATIVE_WORD = "nativeWord";
+
+        public static final String FOREIGN_WORD = "foreignWord";
+    }
 
     public SqliteTranslationDao(LabelDao labelDao, DatabaseFacade databaseFacade, AnswerDao answerDao) {
         this.labelDao = labelDao;
@@ -47,12 +78,11 @@ public class SqliteTranslationDao implements TranslationDao {
         this.answerDao = answerDao;
     }
 
-
     public void insert(final List<Translation> translations) {
         Transactable<Void> runnable = new Transactable<Void>() {
             public Void perform() {
-                for (Translation translation : translations) {
-                    if (!insertSingleWithLabels(translation)) {
+                for (InsertionOutcome outcome : insertAll(translations)) {
+                    if (outcome.isDuplicate()) {
                         throw new RuntimeException("could not insert all values");
                     }
                 }
@@ -62,22 +92,60 @@ public class SqliteTranslationDao implements TranslationDao {
         databaseFacade.doInTransaction(runnable);
     }
 
+    public List<InsertionOutcome> insertInBatches(final List<Translation> translations) {
+        List<InsertionOutcome> outcomes = new ArrayList<>(translations.size());
+        for (int from = 0; from < translations.size(); from += INSERTION_BATCH_SIZE) {
+            final List<Translation> batch =
+                translations.subList(from, Math.min(from + INSERTION_BATCH_SIZE, translations.size()));
+            outcomes.addAll(databaseFacade.doInTransaction(new Transactable<List<InsertionOutcome>>() {
+                @Override
+                public List<InsertionOutcome> perform() {
+                    return insertAll(batch);
+                }
+            }));
+        }
+        return outcomes;
+    }
+
+    private List<InsertionOutcome> insertAll(List<Translation> translations) {
+        List<InsertionOutcome> outcomes = new ArrayList<>(translations.size());
+        for (Translation translation : translations) {
+            outcomes.add(insertWithLabels(translation));
+        }
+        return outcomes;
+    }
+
+    private InsertionOutcome insertWithLabels(Translation translation) {
+        long id = databaseFacade.executeInsertOrIgnore(INSERT_TRANSLATION, translation.getNativeWord().get(),
+                                                       translation.getForeignWord().get());
+        if (id == ERROR_OCURRED) {
+            return new InsertionOutcome(translation, null);
+        }
+        for (Label label : translation.getMetadata().getLabels()) {
+            databaseFacade.executeInsert(INSERT_LABEL, id, label.getId());
+        }
+        return new InsertionOutcome(translation, (int) id);
+    }
+
     public boolean insertSingleWithLabels(final Translation translation) {
-        Transactable<Boolean> transactable = new Transactable<Boolean>() {
-            public Boolean perform() {
+        return insertSingleWithLabelsAndGetId(translation).isPresent();
+    }
+
+    public Optional<Integer> insertSingleWithLabelsAndGetId(final Translation translation) {
+        Transactable<Optional<Integer>> transactable = new Transactable<Optional<Integer>>() {
+            public Optional<Integer> perform() {
                 long id = insertSingleUsingDb(translation);
-                boolean result = (id != ERROR_OCURRED);
-                if (result) {
-                    for (Label label : translation.getMetadata().getLabels()) {
-                        final Translation translation1 = new Translation((int) id, translation);
-                        labelDao.addLabelledTranslation(translation1.getId(), label);
-                    }
+                if (id == ERROR_OCURRED) {
+                    return Optional.absent();
                 }
-                return result;
+                for (Label label : translation.getMetadata().getLabels()) {
+                    labelDao.addLabelledTranslation((int) id, label);
+                }
+                return Optional.of((int) id);
             }
         };
 
-        return BooleanUtils.isTrue(databaseFacade.doInTransaction(transactable));
+        return databaseFacade.doInTransaction(transactable);
     }
 
     private long insertSingleUsingDb(Translation translation) {
@@ -87,7 +155,6 @@ public class SqliteTranslationDao implements TranslationDao {
         return databaseFacade.insert(Translations.TABLE_NAME, contentValues);
     }
 
-
     public int updateAlongWithLabels(final Translation translation) {
         Transactable<Integer> transactable = new Transactable<Integer>() {
             @Override
@@ -128,59 +195,111 @@ public class SqliteTranslationDao implements TranslationDao {
                 ids.removeAll(Collections.singleton(null));
                 answerDao.deleteAnswersByTranslationIds(ids);
                 labelDao.deleteLabelledTranslationsByTranslationIds(ids);
-                for (Translation translation : translations) {
-                    deleteSingle(translation);
-                }
+                databaseFacade.deleteWhereIn(Translations.TABLE_NAME, Translations.ID, ids);
                 return null;
             }
         };
         databaseFacade.doInTransaction(transactable);
     }
 
+    public void clearStaging() {
+        databaseFacade.execSql("create temp table if not exists " + Staging.TABLE_NAME + " (" +
+                               Staging.NATIVE_WORD + " text NOT NULL, " +
+                               Staging.FOREIGN_WORD + " text NOT NULL, " +
+                               "UNIQUE (" + Staging.NATIVE_WORD + ", " + Staging.FOREIGN_WORD + "))");
+        databaseFacade.execSql("delete from " + Staging.TABLE_NAME);
+    }
 
-
-
-    private List<Integer> collectIds(Collection<Translation> translations) {
-        List<Integer> translationIdsToDelete = new ArrayList<>();
-        for (Translation translation : translations) {
-            translationIdsToDelete.add(translation.getId());
+    public void stage(final List<Translation> translations) {
+        final SQLiteStatement stage = databaseFacade.compileStatement(
+            "insert or ignore into " + Staging.TABLE_NAME + " (" +
+            Staging.NATIVE_WORD + ", " +
+            Staging.FOREIGN_WORD + ") values (?, ?)");
+        try {
+            databaseFacade.doInTransaction(new Transactable<Void>() {
+                @Override
+                public Void perform() {
+                    for (Translation translation : translations) {
+                        stage.bindString(1, translation.getNativeWord().get());
+                        stage.bindString(2, translation.getForeignWord().get());
+                        stage.executeInsert();
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            stage.close();
         }
-        return translationIdsToDelete;
     }
 
-    private Integer deleteById(int id) {
-        String tableName = Translations.TABLE_NAME;
-        String condition = Translations.ID + " = ? ";
-        String[] args = {String.valueOf(id)};
-        return databaseFacade.delete(tableName, condition, args);
+    public void mergeStagedTranslations() {
+        Transactable<Void> transactable = new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                List<Integer> missingIds = getIdsOfTranslationsMissingFromStaging();
+                if (!missingIds.isEmpty()) {
+                    answerDao.deleteAnswersByTranslationIds(missingIds);
+                    labelDao.deleteLabelledTranslationsByTranslationIds(missingIds);
+                    databaseFacade.deleteWhereIn(Translations.TABLE_NAME, Translations.ID, missingIds);
+                }
+                databaseFacade.execSql("insert into " + Translations.TABLE_NAME + " (" +
+                                       Translations.NATIVE_WORD + ", " +
+                                       Translations.FOREIGN_WORD + ") select " +
+                                       "s." + Staging.NATIVE_WORD + ", " +
+                                       "s." + Staging.FOREIGN_WORD +
+                                       " from " + Staging.TABLE_NAME + " s" +
+                                       " where not exists (select 1 from " + Translations.TABLE_NAME + " t" +
+                                       " where t." + Translations.NATIVE_WORD + " = s." + Staging.NATIVE_WORD +
+                                       " and t." + Translations.FOREIGN_WORD + " = s." + Staging.FOREIGN_WORD +
+                                       ")" +
+                                       " order by s.rowid");
+                databaseFacade.execSql("delete from " + Staging.TABLE_NAME);
+                return null;
+            }
+        };
+        databaseFacade.doInTransaction(transactable);
     }
 
-    private Integer deleteSingle(Translation translation) {
-        if (translation.getId() != null) {
-            return deleteById(translation.getId());
-        } else {
-            return 0;
-        }
+    public void replaceWithStagedTranslations() {
+        Transactable<Void> transactable = new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                List<Integer> ids = queryIds("select " + Translations.ID + " from " + Translations.TABLE_NAME);
+                answerDao.deleteAnswersByTranslationIds(ids);
+                labelDao.deleteLabelledTranslationsByTranslationIds(ids);
+                databaseFacade.deleteWhereIn(Translations.TABLE_NAME, Translations.ID, ids);
+                databaseFacade.execSql("insert into " + Translations.TABLE_NAME + " (" +
+                                       Translations.NATIVE_WORD + ", " +
+                                       Translations.FOREIGN_WORD + ") select " +
+                                       Staging.NATIVE_WORD + ", " +
+                                       Staging.FOREIGN_WORD +
+                                       " from " + Staging.TABLE_NAME +
+                                       " order by rowid");
+                databaseFacade.execSql("delete from " + Staging.TABLE_NAME);
+                return null;
+            }
+        };
+        databaseFacade.doInTransaction(transactable);
     }
 
-    public List<Translation> getAllTranslations() {
-        List<Translation> translations = new ArrayList<>();
+    private List<Integer> getIdsOfTranslationsMissingFromStaging() {
+        return queryIds("select t." + Translations.ID + " from " + Translations.TABLE_NAME + " t" +
+                        " where not exists (select 1 from " + Staging.TABLE_NAME + " s" +
+                        " where s." + Staging.NATIVE_WORD + " = t." + Translations.NATIVE_WORD +
+                        " and s." + Staging.FOREIGN_WORD + " = t." + Translations.FOREIGN_WORD +
+                        ")");
+    }
+
+    private List<Integer> queryIds(String query) {
+        List<Integer> ids = new ArrayList<>();
 
         Cursor res = null;
         try {
-            String query = "select " +
-                           Translations.ID + ", " +
-                           Translations.FOREIGN_WORD + ", " +
-                           Translations.NATIVE_WORD +
-                           " from " + Translations.TABLE_NAME;
             res = databaseFacade.rawQuery(query);
             res.moveToFirst();
 
             while (!res.isAfterLast()) {
-                translations.add(new Translation(res.getInt(res.getColumnIndex(Translations.ID)), new ForeignWord(
-                    res.getString(res.getColumnIndex(Translations.FOREIGN_WORD))), new NativeWord(
-                    res.getString(res.getColumnIndex(Translations.NATIVE_WORD))),
-                                                 new TranslationMetadata(new ArrayList<AnswerAtTime>())));
+                ids.add(res.getInt(0));
                 res.moveToNext();
             }
         } finally {
@@ -188,10 +307,127 @@ public class SqliteTranslationDao implements TranslationDao {
                 res.close();
             }
         }
+        return ids;
+    }
+
+    private List<Integer> collectIds(Collection<Translation> translations) {
+        List<Integer> translationIdsToDelete = new ArrayList<>();
+        for (Translation translation : translations) {
+            translationIdsToDelete.add(translation.getId());
+        }
+        return translationIdsToDelete;
+    }
+
+    private Integer deleteById(int id) {
+        return databaseFacade.executeUpdateDelete("delete from " + Translations.TABLE_NAME + " where " +
+                                                  Translations.ID + " = ?", id);
+    }
+
+    public List<Translation> getAllTranslations() {
+        return databaseFacade.queryForList(SELECT_TRANSLATIONS, null, new TranslationMapper());
+    }
+
+    public List<Translation> getTranslationsPage(int afterId, int pageSize) {
+        checkPageSize(pageSize);
+        String query = SELECT_TRANSLATIONS +
+                       " where " + Translations.ID + " > ?" +
+                       " order by " + Translations.ID +
+                       " limit ?";
+        String[] args = {String.valueOf(afterId), String.valueOf(pageSize)};
+        return databaseFacade.queryForList(query, args, new TranslationMapper());
+    }
+
+    public List<Translation> getTranslationsWithLabelPage(Label label, int afterId, int pageSize) {
+        checkPageSize(pageSize);
+        String query = "select " +
+                       "t." + Translations.ID + " as " + Translations.ID + ", " +
+                       "t." + Translations.FOREIGN_WORD + " as " + Translations.FOREIGN_WORD + ", " +
+                       "t." + Translations.NATIVE_WORD + " as " + Translations.NATIVE_WORD + ", " +
+                       "t." + Translations.LABEL_MASK + " as " + Translations.LABEL_MASK +
+                       " from " + LabelledTranslation.TABLE_NAME + " lt" +
+                       " join " + Translations.TABLE_NAME + " t on t." + Translations.ID + " = lt." +
+                       LabelledTranslation.TRANSLATION_ID +
+                       " where lt." + LabelledTranslation.LABEL_ID + " = ?" +
+                       " and lt." + LabelledTranslation.TRANSLATION_ID + " > ?" +
+                       " order by lt." + LabelledTranslation.TRANSLATION_ID +
+                       " limit ?";
+        String[] args = {String.valueOf(label.getId()), String.valueOf(afterId), String.valueOf(pageSize)};
+        return databaseFacade.queryForList(query, args, new TranslationMapper());
+    }
+
+    private void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be positive: " + pageSize);
+        }
+    }
+
+    public void forEachTranslationWords(final TranslationWordsHandler handler) {
+        String query = "select " +
+                       Translations.FOREIGN_WORD + ", " +
+                       Translations.NATIVE_WORD +
+                       " from " + Translations.TABLE_NAME;
+        databaseFacade.forEachRow(query, null, new RowCallback() {
+            private int foreignWordColumn;
+            private int nativeWordColumn;
 
-        return translations;
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                foreignWordColumn = cursor.getColumnIndexOrThrow(Translations.FOREIGN_WORD);
+                nativeWordColumn = cursor.getColumnIndexOrThrow(Translations.NATIVE_WORD);
+            }
+
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handle(cursor.getString(foreignWordColumn), cursor.getString(nativeWordColumn));
+            }
+        });
+    }
+
+    public List<Translation> getTranslationsWithAnyOfLabels(Set<Label> labels) {
+        if (labels.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> args = new ArrayList<>();
+        for (Label label : labels) {
+            args.add(String.valueOf(label.getId()));
+        }
+        String query = SELECT_TRANSLATIONS +
+                       " where " + Translations.ID + " in (select " + LabelledTranslation.TRANSLATION_ID +
+                       " from " + LabelledTranslation.TABLE_NAME +
+                       " where " + LabelledTranslation.LABEL_ID + " in (" +
+                       Joiner.on(", ").join(Collections.nCopies(args.size(), "?")) + "))" +
+                       " order by " + Translations.ID;
+        return databaseFacade.queryForList(query, args.toArray(new String[args.size()]), new TranslationMapper());
     }
 
+    public List<Translation> getTranslationsWithoutLabels(Set<Label> labels) {
+        String query = SELECT_TRANSLATIONS +
+                       " where " + Translations.LABEL_MASK + " & ? = 0" +
+                       " order by " + Translations.ID;
+        String[] args = {String.valueOf(LabelSet.maskOf(labels))};
+        return databaseFacade.queryForList(query, args, new TranslationMapper());
+    }
 
+    private static class TranslationMapper implements RowMapper<Translation> {
+        private int idColumn;
+        private int foreignWordColumn;
+        private int nativeWordColumn;
+        private int labelMaskColumn;
+
+        @Override
+        public void resolveColumns(Cursor cursor) {
+            idColumn = cursor.getColumnIndexOrThrow(Translations.ID);
+            foreignWordColumn = cursor.getColumnIndexOrThrow(Translations.FOREIGN_WORD);
+            nativeWordColumn = cursor.getColumnIndexOrThrow(Translations.NATIVE_WORD);
+            labelMaskColumn = cursor.getColumnIndexOrThrow(Translations.LABEL_MASK);
+        }
 
+        @Override
+        public Translation mapRow(Cursor cursor) {
+            TranslationMetadata metadata = TranslationMetadata.createEmpty();
+            metadata.getLabels().setMask(cursor.getInt(labelMaskColumn));
+            return new Translation(cursor.getInt(idColumn), new ForeignWord(cursor.getString(foreignWordColumn)),
+                                   new NativeWord(cursor.getString(nativeWordColumn)), metadata);
+        }
+    }
 }
@@ -1,12 +1,27 @@
 package uk.ignas.livedictionary.core;
 
+import com.google.common.base.Optional;
+import uk.ignas.livedictionary.core.label.Label;
+
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface TranslationDao {
     void insert(final List<Translation> translations);
+    List<InsertionOutcome> insertInBatches(final List<Translation> translations);
     boolean insertSingleWithLabels(final Translation translation);
+    Optional<Integer> insertSingleWithLabelsAndGetId(final Translation translation);
     int updateAlongWithLabels(final Translation translation);
     void delete(final Collection<Translation> translations);
+    void clearStaging();
+    void stage(final List<Translation> translations);
+    void mergeStagedTranslations();
+    void replaceWithStagedTranslations();
     List<Translation> getAllTranslations();
+    List<Translation> getTranslationsPage(int afterId, int pageSize);
+    List<Translation> getTranslationsWithLabelPage(Label label, int afterId, int pageSize);
+    void forEachTranslationWords(TranslationWordsHandler handler);
+    List<Translation> getTranslationsWithAnyOfLabels(Set<Label> labels);
+    List<Translation> getTranslationsWithoutLabels(Set<Label> labels);
 }
@@ -1,17 +1,15 @@
 package uk.ignas.livedictionary.core;
 
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
-import uk.ignas.livedictionary.core.label.Label;
+import uk.ignas.livedictionary.core.label.LabelSet;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class TranslationMetadata {
     private List<AnswerAtTime> recentAnswers = new ArrayList<>();
 
-    private Set<Label> labels = new HashSet<>();
+    private final LabelSet labels = new LabelSet();
 
     public TranslationMetadata(List<AnswerAtTime> recentAnswers) {
         this.recentAnswers = recentAnswers;
@@ -25,7 +23,7 @@ public class TranslationMetadata {
         return recentAnswers;
     }
 
-    public Set<Label> getLabels() {
+    public LabelSet getLabels() {
         return labels;
     }
 }
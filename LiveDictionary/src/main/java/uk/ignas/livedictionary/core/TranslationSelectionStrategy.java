@@ -7,5 +7,13 @@ import java.util.List;
 public interface TranslationSelectionStrategy {
     void updateState(List<Translation> translations);
 
+    void addTranslation(Translation translation);
+
+    void removeTranslation(Translation translation);
+
+    void replaceTranslation(Translation previous, Translation current);
+
+    void refreshTranslation(Translation translation);
+
     Optional<Translation> selectTranslation();
 }
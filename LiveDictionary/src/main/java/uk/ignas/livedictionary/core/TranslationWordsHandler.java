@@ -0,0 +1,5 @@
+package uk.ignas.livedictionary.core;
+
+public interface TranslationWordsHandler {
+    void handle(String foreignWord, String nativeWord);
+}
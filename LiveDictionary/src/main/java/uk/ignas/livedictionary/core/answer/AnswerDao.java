@@ -2,11 +2,29 @@ package uk.ignas.livedictionary.core.answer;
 
 import com.google.common.collect.ListMultimap;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface AnswerDao {
     void deleteAnswersByTranslationIds(List<Integer> translationIdsToDelete);
     boolean logAnswer(Integer translationId, AnswerAtTime answerAtTime);
+    boolean logAnswer(Integer translationId, AnswerAtTime answerAtTime, ReviewSchedule schedule);
+
+    int logAnswers(List<PendingAnswer> answers);
 
     ListMultimap<Integer, AnswerAtTime> getAnswersLogByTranslationId();
+
+    List<LoggedAnswer> getAnswersLoggedAfter(long answerId);
+
+    List<LoggedAnswer> getAnswersPage(long afterId, int pageSize);
+
+    long getLastAnswerId();
+
+    void saveSchedules(Map<Integer, ReviewSchedule> schedulesByTranslationId);
+
+    Set<Integer> getTranslationIdsWithSchedule();
+
+    Map<Integer, Date> getTranslationsRestrictedAt(Date time);
 }
@@ -0,0 +1,123 @@
+package uk.ignas.livedictionary.core.answer;
+
+import com.google.common.base.Charsets;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class AnswerJournal {
+    private static final String SEPARATOR = ",";
+
+    private final File file;
+
+    private FileOutputStream out;
+
+    public AnswerJournal(File file) {
+        this.file = file;
+    }
+
+    public void append(PendingAnswer answer) {
+        AnswerAtTime answerAtTime = answer.getAnswerAtTime();
+        Feedback feedback = answerAtTime.getFeedback();
+        ReviewSchedule schedule = answer.getSchedule();
+        String line = answer.getTranslationId() + SEPARATOR +
+                      answerAtTime.getTimepoint().getTime() + SEPARATOR +
+                      answerAtTime.getAnswer().name() + SEPARATOR +
+                      (feedback != null ? feedback.name() : "") + SEPARATOR +
+                      formatSchedule(schedule) + "\n";
+        try {
+            if (out == null) {
+                out = new FileOutputStream(file, true);
+            }
+            out.write(line.getBytes(Charsets.UTF_8));
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new RuntimeException("could not journal answer", e);
+        }
+    }
+
+    public List<PendingAnswer> readAll() {
+        List<PendingAnswer> answers = new ArrayList<>();
+        if (!file.exists()) {
+            return answers;
+        }
+        try {
+            BufferedReader reader =
+                new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    PendingAnswer answer = parse(line);
+                    if (answer != null) {
+                        answers.add(answer);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("could not read answer journal", e);
+        }
+        return answers;
+    }
+
+    private String formatSchedule(ReviewSchedule schedule) {
+        if (schedule == null) {
+            return SEPARATOR + SEPARATOR;
+        }
+        Date restrictedUntil = schedule.getRestrictedUntil();
+        return schedule.getPromotionLevel() + SEPARATOR +
+               (restrictedUntil != null ? String.valueOf(restrictedUntil.getTime()) : "") + SEPARATOR +
+               schedule.isLastAnswerCorrect();
+    }
+
+    private PendingAnswer parse(String line) {
+        String[] fields = line.split(SEPARATOR, -1);
+        if (fields.length != 7) {
+            return null;
+        }
+        try {
+            Feedback feedback = fields[3].isEmpty() ? null : Feedback.valueOf(fields[3]);
+            AnswerAtTime answerAtTime =
+                new AnswerAtTime(Answer.valueOf(fields[2]), new Date(Long.parseLong(fields[1])), feedback);
+            return new PendingAnswer(Integer.valueOf(fields[0]), answerAtTime, parseSchedule(fields));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private ReviewSchedule parseSchedule(String[] fields) {
+        if (fields[4].isEmpty()) {
+            return null;
+        }
+        Date restrictedUntil = fields[5].isEmpty() ? null : new Date(Long.parseLong(fields[5]));
+        return new ReviewSchedule(Integer.parseInt(fields[4]), restrictedUntil, Boolean.parseBoolean(fields[6]));
+    }
+
+    public void clear() {
+        close();
+        if (file.exists() && !file.delete()) {
+            throw new RuntimeException("could not clear answer journal " + file);
+        }
+    }
+
+    private void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException("could not close answer journal " + file, e);
+        } finally {
+            out = null;
+        }
+    }
+}
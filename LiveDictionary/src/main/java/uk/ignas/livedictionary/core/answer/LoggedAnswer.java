@@ -0,0 +1,25 @@
+package uk.ignas.livedictionary.core.answer;
+
+public class LoggedAnswer {
+    private final long id;
+    private final Integer translationId;
+    private final AnswerAtTime answerAtTime;
+
+    public LoggedAnswer(long id, Integer translationId, AnswerAtTime answerAtTime) {
+        this.id = id;
+        this.translationId = translationId;
+        this.answerAtTime = answerAtTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Integer getTranslationId() {
+        return translationId;
+    }
+
+    public AnswerAtTime getAnswerAtTime() {
+        return answerAtTime;
+    }
+}
@@ -0,0 +1,25 @@
+package uk.ignas.livedictionary.core.answer;
+
+public class PendingAnswer {
+    private final Integer translationId;
+    private final AnswerAtTime answerAtTime;
+    private final ReviewSchedule schedule;
+
+    public PendingAnswer(Integer translationId, AnswerAtTime answerAtTime, ReviewSchedule schedule) {
+        this.translationId = translationId;
+        this.answerAtTime = answerAtTime;
+        this.schedule = schedule;
+    }
+
+    public Integer getTranslationId() {
+        return translationId;
+    }
+
+    public AnswerAtTime getAnswerAtTime() {
+        return answerAtTime;
+    }
+
+    public ReviewSchedule getSchedule() {
+        return schedule;
+    }
+}
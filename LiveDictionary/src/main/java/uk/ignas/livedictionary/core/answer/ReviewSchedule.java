@@ -0,0 +1,31 @@
+package uk.ignas.livedictionary.core.answer;
+
+import java.util.Date;
+
+public class ReviewSchedule {
+    private final int promotionLevel;
+    private final Date restrictedUntil;
+    private final boolean lastAnswerCorrect;
+
+    public ReviewSchedule(int promotionLevel, Date restrictedUntil, boolean lastAnswerCorrect) {
+        this.promotionLevel = promotionLevel;
+        this.restrictedUntil = restrictedUntil;
+        this.lastAnswerCorrect = lastAnswerCorrect;
+    }
+
+    public int getPromotionLevel() {
+        return promotionLevel;
+    }
+
+    public Date getRestrictedUntil() {
+        return restrictedUntil;
+    }
+
+    public boolean isLastAnswerCorrect() {
+        return lastAnswerCorrect;
+    }
+
+    public boolean isRestrictedAt(Date time) {
+        return restrictedUntil != null && time.before(restrictedUntil);
+    }
+}
@@ -1,14 +1,20 @@
 package uk.ignas.livedictionary.core.answer;
 
-import android.content.ContentValues;
 import android.database.Cursor;
-import com.google.common.base.Joiner;
+import android.database.SQLException;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import uk.ignas.livedictionary.core.SqliteTranslationDao.Translations;
 import uk.ignas.livedictionary.core.util.DatabaseFacade;
+import uk.ignas.livedictionary.core.util.RowMapper;
+import uk.ignas.livedictionary.core.util.Transactable;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SqliteAnswerDao implements AnswerDao {
     public static final int ERROR_OCURRED = -1;
@@ -28,6 +34,19 @@ public class SqliteAnswerDao implements AnswerDao {
         public static final String FEEDBACK = "feedback";
     }
 
+    public static class TranslationSchedule {
+
+        public static final String TABLE_NAME = "translation_schedule";
+
+        public static final String TRANSLATION_ID = "translation_id";
+
+        public static final String PROMOTION_LEVEL = "promotion_level";
+
+        public static final String RESTRICTED_UNTIL = "restricted_until";
+
+        public static final String LAST_ANSWER_CORRECT = "last_answer_correct";
+    }
+
     private final DatabaseFacade databaseFacade;
 
     public SqliteAnswerDao(DatabaseFacade databaseFacade) {
@@ -35,22 +54,175 @@ public class SqliteAnswerDao implements AnswerDao {
     }
 
     public void deleteAnswersByTranslationIds(List<Integer> translationIdsToDelete) {
-        String inClause = Joiner.on(", ").join(translationIdsToDelete);
-        databaseFacade.execSql("DELETE FROM " + AnswersLog.TABLE_NAME + " WHERE " +
-                               AnswersLog.TRANSLATION_ID + " IN (" + inClause + ") ");
+        databaseFacade.deleteWhereIn(TranslationSchedule.TABLE_NAME, TranslationSchedule.TRANSLATION_ID,
+                                     translationIdsToDelete);
+        databaseFacade.deleteWhereIn(AnswersLog.TABLE_NAME, AnswersLog.TRANSLATION_ID, translationIdsToDelete);
+    }
+
+    @Override
+    public boolean logAnswer(final Integer translationId, final AnswerAtTime answerAtTime) {
+        Transactable<Boolean> transactable = new Transactable<Boolean>() {
+            @Override
+            public Boolean perform() {
+                boolean logged = insertAnswer(translationId, answerAtTime);
+                if (logged) {
+                    deleteSchedule(translationId);
+                }
+                return logged;
+            }
+        };
+        return databaseFacade.doInTransaction(transactable);
+    }
+
+    @Override
+    public boolean logAnswer(final Integer translationId, final AnswerAtTime answerAtTime,
+                             final ReviewSchedule schedule) {
+        Transactable<Boolean> transactable = new Transactable<Boolean>() {
+            @Override
+            public Boolean perform() {
+                boolean logged = insertAnswer(translationId, answerAtTime);
+                if (logged) {
+                    saveSchedule(translationId, schedule);
+                }
+                return logged;
+            }
+        };
+        return databaseFacade.doInTransaction(transactable);
+    }
+
+    @Override
+    public int logAnswers(final List<PendingAnswer> answers) {
+        Transactable<Integer> transactable = new Transactable<Integer>() {
+            @Override
+            public Integer perform() {
+                int logged = 0;
+                for (PendingAnswer answer : answers) {
+                    if (insertAnswerOnce(answer.getTranslationId(), answer.getAnswerAtTime())) {
+                        logged++;
+                        if (answer.getSchedule() != null) {
+                            saveSchedule(answer.getTranslationId(), answer.getSchedule());
+                        } else {
+                            deleteSchedule(answer.getTranslationId());
+                        }
+                    }
+                }
+                return logged;
+            }
+        };
+        return databaseFacade.doInTransaction(transactable);
+    }
+
+    private boolean insertAnswerOnce(Integer translationId, AnswerAtTime answerAtTime) {
+        Feedback feedback = answerAtTime.getFeedback();
+        long timeAnswered = answerAtTime.getTimepoint().getTime();
+        int inserted = databaseFacade.executeUpdateDelete(
+            "insert into " + AnswersLog.TABLE_NAME + " (" +
+            AnswersLog.TRANSLATION_ID + ", " +
+            AnswersLog.FEEDBACK + ", " +
+            AnswersLog.TIME_ANSWERED + ", " +
+            AnswersLog.IS_CORRECT + ") select ?, ?, ?, ?" +
+            " where exists (select 1 from " + Translations.TABLE_NAME +
+            " where " + Translations.ID + " = ?)" +
+            " and not exists (select 1 from " + AnswersLog.TABLE_NAME +
+            " where " + AnswersLog.TRANSLATION_ID + " = ? and " + AnswersLog.TIME_ANSWERED + " = ?)",
+            translationId, feedback != null ? feedback.name() : null, timeAnswered,
+            answerAtTime.getAnswer().isCorrect(), translationId, translationId, timeAnswered);
+        return inserted > 0;
+    }
+
+    private boolean insertAnswer(Integer translationId, AnswerAtTime answerAtTime) {
+        Feedback feedback = answerAtTime.getFeedback();
+        try {
+            databaseFacade.executeInsert("insert into " + AnswersLog.TABLE_NAME + " (" +
+                                         AnswersLog.TRANSLATION_ID + ", " +
+                                         AnswersLog.FEEDBACK + ", " +
+                                         AnswersLog.TIME_ANSWERED + ", " +
+                                         AnswersLog.IS_CORRECT + ") values (?, ?, ?, ?)",
+                                         translationId, feedback != null ? feedback.name() : null,
+                                         answerAtTime.getTimepoint().getTime(), answerAtTime.getAnswer().isCorrect());
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void saveSchedule(Integer translationId, ReviewSchedule schedule) {
+        Date restrictedUntil = schedule.getRestrictedUntil();
+        databaseFacade.executeInsert("insert or replace into " + TranslationSchedule.TABLE_NAME + " (" +
+                                     TranslationSchedule.TRANSLATION_ID + ", " +
+                                     TranslationSchedule.PROMOTION_LEVEL + ", " +
+                                     TranslationSchedule.RESTRICTED_UNTIL + ", " +
+                                     TranslationSchedule.LAST_ANSWER_CORRECT + ") values (?, ?, ?, ?)",
+                                     translationId, schedule.getPromotionLevel(),
+                                     restrictedUntil != null ? restrictedUntil.getTime() : null,
+                                     schedule.isLastAnswerCorrect());
+    }
+
+    private void deleteSchedule(Integer translationId) {
+        databaseFacade.executeUpdateDelete("delete from " + TranslationSchedule.TABLE_NAME + " where " +
+                                           TranslationSchedule.TRANSLATION_ID + " = ?", translationId);
+    }
+
+    @Override
+    public void saveSchedules(final Map<Integer, ReviewSchedule> schedulesByTranslationId) {
+        Transactable<Void> transactable = new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                for (Map.Entry<Integer, ReviewSchedule> schedule : schedulesByTranslationId.entrySet()) {
+                    saveSchedule(schedule.getKey(), schedule.getValue());
+                }
+                return null;
+            }
+        };
+        databaseFacade.doInTransaction(transactable);
+    }
+
+    @Override
+    public Set<Integer> getTranslationIdsWithSchedule() {
+        Set<Integer> translationIds = new HashSet<>();
+
+        Cursor res = null;
+        try {
+            res = databaseFacade.rawQuery("select " + TranslationSchedule.TRANSLATION_ID +
+                                          " from " + TranslationSchedule.TABLE_NAME);
+            res.moveToFirst();
+
+            while (!res.isAfterLast()) {
+                translationIds.add(res.getInt(0));
+                res.moveToNext();
+            }
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+        }
+        return translationIds;
     }
 
     @Override
-    public boolean logAnswer(Integer translationId, AnswerAtTime answerAtTime) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(AnswersLog.TRANSLATION_ID, translationId);
-        if (answerAtTime.getFeedback() != null) {
-            contentValues.put(AnswersLog.FEEDBACK, answerAtTime.getFeedback().name());
+    public Map<Integer, Date> getTranslationsRestrictedAt(Date time) {
+        Map<Integer, Date> restrictedUntilByTranslationId = new HashMap<>();
+
+        Cursor res = null;
+        try {
+            String sql = "select " +
+                         TranslationSchedule.TRANSLATION_ID + ", " +
+                         TranslationSchedule.RESTRICTED_UNTIL +
+                         " from " + TranslationSchedule.TABLE_NAME +
+                         " where " + TranslationSchedule.RESTRICTED_UNTIL + " > ?";
+            res = databaseFacade.rawQuery(sql, new String[]{String.valueOf(time.getTime())});
+            res.moveToFirst();
+
+            while (!res.isAfterLast()) {
+                restrictedUntilByTranslationId.put(res.getInt(0), new Date(res.getLong(1)));
+                res.moveToNext();
+            }
+        } finally {
+            if (res != null) {
+                res.close();
+            }
         }
-        contentValues.put(AnswersLog.TIME_ANSWERED, answerAtTime.getTimepoint().getTime());
-        contentValues.put(AnswersLog.IS_CORRECT, answerAtTime.getAnswer().isCorrect());
-        long id = databaseFacade.insert(AnswersLog.TABLE_NAME, contentValues);
-        return id != ERROR_OCURRED;
+        return restrictedUntilByTranslationId;
     }
 
     public ListMultimap<Integer, AnswerAtTime> getAnswersLogByTranslationId() {
@@ -63,20 +235,15 @@ public class SqliteAnswerDao implements AnswerDao {
                          AnswersLog.TRANSLATION_ID + ", " +
                          AnswersLog.TIME_ANSWERED + ", " +
                          AnswersLog.FEEDBACK +
-                         " from " + AnswersLog.TABLE_NAME;
+                         " from " + AnswersLog.TABLE_NAME +
+                         " order by " + AnswersLog.TRANSLATION_ID + ", " + AnswersLog.TIME_ANSWERED + ", " +
+                         AnswersLog.ID;
             res = databaseFacade.rawQuery(sql);
-            res.moveToFirst();
-
-            while (!res.isAfterLast()) {
-                int newTranslationId = res.getInt(res.getColumnIndex(AnswersLog.TRANSLATION_ID));
-                Answer answer =
-                    res.getInt(res.getColumnIndex(AnswersLog.IS_CORRECT)) > 0 ? Answer.CORRECT : Answer.INCORRECT;
-                long timeOfAnswer = res.getLong(res.getColumnIndex(AnswersLog.TIME_ANSWERED));
-                String feedbackString = res.getString(res.getColumnIndex(AnswersLog.FEEDBACK));
-                Feedback feedback = feedbackString != null ? Feedback.valueOf(feedbackString) : null;
-                answersLogByTranslationId
-                    .put(newTranslationId, new AnswerAtTime(answer, new Date(timeOfAnswer), feedback));
-                res.moveToNext();
+            AnswerAtTimeMapper mapper = new AnswerAtTimeMapper();
+            mapper.resolveColumns(res);
+            int translationIdColumn = res.getColumnIndexOrThrow(AnswersLog.TRANSLATION_ID);
+            while (res.moveToNext()) {
+                answersLogByTranslationId.put(res.getInt(translationIdColumn), mapper.mapRow(res));
             }
         } finally {
             if (res != null) {
@@ -85,4 +252,90 @@ public class SqliteAnswerDao implements AnswerDao {
         }
         return answersLogByTranslationId;
     }
+
+    @Override
+    public List<LoggedAnswer> getAnswersLoggedAfter(long answerId) {
+        String sql = "select " +
+                     AnswersLog.ID + ", " +
+                     AnswersLog.IS_CORRECT + ", " +
+                     AnswersLog.TRANSLATION_ID + ", " +
+                     AnswersLog.TIME_ANSWERED + ", " +
+                     AnswersLog.FEEDBACK +
+                     " from " + AnswersLog.TABLE_NAME +
+                     " where " + AnswersLog.ID + " > ?" +
+                     " order by " + AnswersLog.ID;
+        return databaseFacade.queryForList(sql, new String[]{String.valueOf(answerId)}, new LoggedAnswerMapper());
+    }
+
+    @Override
+    public List<LoggedAnswer> getAnswersPage(long afterId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be positive: " + pageSize);
+        }
+        String sql = "select " +
+                     AnswersLog.ID + ", " +
+                     AnswersLog.IS_CORRECT + ", " +
+                     AnswersLog.TRANSLATION_ID + ", " +
+                     AnswersLog.TIME_ANSWERED + ", " +
+                     AnswersLog.FEEDBACK +
+                     " from " + AnswersLog.TABLE_NAME +
+                     " where " + AnswersLog.ID + " > ?" +
+                     " order by " + AnswersLog.ID +
+                     " limit ?";
+        String[] args = {String.valueOf(afterId), String.valueOf(pageSize)};
+        return databaseFacade.queryForList(sql, args, new LoggedAnswerMapper());
+    }
+
+    @Override
+    public long getLastAnswerId() {
+        Cursor res = null;
+        try {
+            res = databaseFacade.rawQuery("select max(" + AnswersLog.ID + ") from " + AnswersLog.TABLE_NAME);
+            return res.moveToFirst() ? res.getLong(0) : 0;
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+        }
+    }
+
+    private static class AnswerAtTimeMapper implements RowMapper<AnswerAtTime> {
+        private int isCorrectColumn;
+        private int timeAnsweredColumn;
+        private int feedbackColumn;
+
+        @Override
+        public void resolveColumns(Cursor cursor) {
+            isCorrectColumn = cursor.getColumnIndexOrThrow(AnswersLog.IS_CORRECT);
+            timeAnsweredColumn = cursor.getColumnIndexOrThrow(AnswersLog.TIME_ANSWERED);
+            feedbackColumn = cursor.getColumnIndexOrThrow(AnswersLog.FEEDBACK);
+        }
+
+        @Override
+        public AnswerAtTime mapRow(Cursor cursor) {
+            Answer answer = cursor.getInt(isCorrectColumn) > 0 ? Answer.CORRECT : Answer.INCORRECT;
+            String feedbackString = cursor.getString(feedbackColumn);
+            Feedback feedback = feedbackString != null ? Feedback.valueOf(feedbackString) : null;
+            return new AnswerAtTime(answer, new Date(cursor.getLong(timeAnsweredColumn)), feedback);
+        }
+    }
+
+    public static class LoggedAnswerMapper implements RowMapper<LoggedAnswer> {
+        private final AnswerAtTimeMapper answerAtTimeMapper = new AnswerAtTimeMapper();
+        private int idColumn;
+        private int translationIdColumn;
+
+        @Override
+        public void resolveColumns(Cursor cursor) {
+            answerAtTimeMapper.resolveColumns(cursor);
+            idColumn = cursor.getColumnIndexOrThrow(AnswersLog.ID);
+            translationIdColumn = cursor.getColumnIndexOrThrow(AnswersLog.TRANSLATION_ID);
+        }
+
+        @Override
+        public LoggedAnswer mapRow(Cursor cursor) {
+            return new LoggedAnswer(cursor.getLong(idColumn), cursor.getInt(translationIdColumn),
+                                    answerAtTimeMapper.mapRow(cursor));
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package uk.ignas.livedictionary.core.answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WriteBehindAnswerLogger {
+    public static final int FLUSH_THRESHOLD = 20;
+
+    private final AnswerDao answerDao;
+
+    private final AnswerJournal journal;
+
+    private final List<PendingAnswer> pending = new ArrayList<>();
+
+    public WriteBehindAnswerLogger(AnswerDao answerDao, AnswerJournal journal) {
+        this.answerDao = answerDao;
+        this.journal = journal;
+    }
+
+    public synchronized void log(Integer translationId, AnswerAtTime answerAtTime, ReviewSchedule schedule) {
+        PendingAnswer answer = new PendingAnswer(translationId, answerAtTime, schedule);
+        journal.append(answer);
+        pending.add(answer);
+        if (pending.size() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingAnswer> committed = new ArrayList<>(pending);
+        answerDao.logAnswers(committed);
+        pending.subList(0, committed.size()).clear();
+        if (pending.isEmpty()) {
+            journal.clear();
+        }
+    }
+
+    public synchronized void recover() {
+        pending.clear();
+        pending.addAll(journal.readAll());
+        flush();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+}
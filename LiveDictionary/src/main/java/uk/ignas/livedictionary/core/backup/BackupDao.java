@@ -0,0 +1,13 @@
+package uk.ignas.livedictionary.core.backup;
+
+import com.google.common.base.Optional;
+
+public interface BackupDao {
+    void readAll(BackupRowHandler handler);
+    void replaceAll(BackupRowSource source);
+    void applyChanges(ChangeSource source);
+    long getLastChangeId();
+    Optional<Long> getCheckpoint();
+    void saveCheckpoint(long changeId);
+    void readChanges(long afterChangeId, long upToChangeId, ChangeHandler handler);
+}
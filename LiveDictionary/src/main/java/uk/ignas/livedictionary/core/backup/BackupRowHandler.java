@@ -0,0 +1,12 @@
+package uk.ignas.livedictionary.core.backup;
+
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
+import uk.ignas.livedictionary.core.label.Label;
+
+public interface BackupRowHandler {
+    void handleTranslation(int id, String foreignWord, String nativeWord);
+
+    void handleLabel(int translationId, Label label);
+
+    void handleAnswer(LoggedAnswer answer);
+}
@@ -0,0 +1,5 @@
+package uk.ignas.livedictionary.core.backup;
+
+public interface BackupRowSource {
+    boolean readNext(BackupRowHandler handler);
+}
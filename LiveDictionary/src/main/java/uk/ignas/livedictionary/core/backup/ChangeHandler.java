@@ -0,0 +1,11 @@
+package uk.ignas.livedictionary.core.backup;
+
+import uk.ignas.livedictionary.core.label.Label;
+
+public interface ChangeHandler extends BackupRowHandler {
+    void handleDeletedTranslation(int id);
+
+    void handleDeletedLabel(int translationId, Label label);
+
+    void handleDeletedAnswer(long id);
+}
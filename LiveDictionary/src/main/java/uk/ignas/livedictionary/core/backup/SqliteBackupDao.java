@@ -0,0 +1,403 @@
+package uk.ignas.livedictionary.core.backup;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+import com.google.common.base.Optional;
+import uk.ignas.livedictionary.core.SqliteTranslationDao.Translations;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
+import uk.ignas.livedictionary.core.answer.SqliteAnswerDao.AnswersLog;
+import uk.ignas.livedictionary.core.answer.SqliteAnswerDao.LoggedAnswerMapper;
+import uk.ignas.livedictionary.core.answer.SqliteAnswerDao.TranslationSchedule;
+import uk.ignas.livedictionary.core.label.Label;
+import uk.ignas.livedictionary.core.label.SqliteLabelDao.LabelledTranslation;
+import uk.ignas.livedictionary.core.util.DatabaseFacade;
+import uk.ignas.livedictionary.core.util.RowCallback;
+import uk.ignas.livedictionary.core.util.Transactable;
+
+public class SqliteBackupDao implements BackupDao {
+    private static class ChangeLog {
+        public static final String TABLE_NAME = "change_log";
+
+        public static final String ID = "id";
+
+        public static final String TABLE = "table_name";
+
+        public static final String ROW_ID = "row_id";
+
+        public static final String LABEL_ID = "label_id";
+    }
+
+    private static class ExportCheckpoint {
+        public static final String TABLE_NAME = "export_checkpoint";
+
+        public static final String ID = "id";
+
+        public static final String LAST_CHANGE_ID = "last_change_id";
+
+        public static final int SINGLE_ROW_ID = 1;
+    }
+
+    private final DatabaseFacade databaseFacade;
+
+    public SqliteBackupDao(DatabaseFacade databaseFacade) {
+        this.databaseFacade = databaseFacade;
+    }
+
+    @Override
+    public void readAll(BackupRowHandler handler) {
+        readTranslations("", null, handler);
+        readLabels("", null, handler);
+        readAnswers("", null, handler);
+    }
+
+    private void readTranslations(String condition, String[] args, final BackupRowHandler handler) {
+        databaseFacade.forEachRow("select " +
+                                  "t." + Translations.ID + ", " +
+                                  "t." + Translations.FOREIGN_WORD + ", " +
+                                  "t." + Translations.NATIVE_WORD +
+                                  " from " + Translations.TABLE_NAME + " t" + condition +
+                                  " order by t." + Translations.ID, args, new RowCallback() {
+            private int idColumn;
+            private int foreignWordColumn;
+            private int nativeWordColumn;
+
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                idColumn = cursor.getColumnIndexOrThrow(Translations.ID);
+                foreignWordColumn = cursor.getColumnIndexOrThrow(Translations.FOREIGN_WORD);
+                nativeWordColumn = cursor.getColumnIndexOrThrow(Translations.NATIVE_WORD);
+            }
+
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleTranslation(cursor.getInt(idColumn), cursor.getString(foreignWordColumn),
+                                          cursor.getString(nativeWordColumn));
+            }
+        });
+    }
+
+    private void readLabels(String condition, String[] args, final BackupRowHandler handler) {
+        databaseFacade.forEachRow("select " +
+                                  "lt." + LabelledTranslation.TRANSLATION_ID + ", " +
+                                  "lt." + LabelledTranslation.LABEL_ID +
+                                  " from " + LabelledTranslation.TABLE_NAME + " lt" + condition, args,
+                                  new RowCallback() {
+            private int translationIdColumn;
+            private int labelIdColumn;
+
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                translationIdColumn = cursor.getColumnIndexOrThrow(LabelledTranslation.TRANSLATION_ID);
+                labelIdColumn = cursor.getColumnIndexOrThrow(LabelledTranslation.LABEL_ID);
+            }
+
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleLabel(cursor.getInt(translationIdColumn), Label.fromId(cursor.getInt(labelIdColumn)));
+            }
+        });
+    }
+
+    private void readAnswers(String condition, String[] args, final BackupRowHandler handler) {
+        databaseFacade.forEachRow("select " +
+                                  "a." + AnswersLog.ID + ", " +
+                                  "a." + AnswersLog.TRANSLATION_ID + ", " +
+                                  "a." + AnswersLog.TIME_ANSWERED + ", " +
+                                  "a." + AnswersLog.IS_CORRECT + ", " +
+                                  "a." + AnswersLog.FEEDBACK +
+                                  " from " + AnswersLog.TABLE_NAME + " a" + condition +
+                                  " order by a." + AnswersLog.ID, args, new RowCallback() {
+            private final LoggedAnswerMapper mapper = new LoggedAnswerMapper();
+
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                mapper.resolveColumns(cursor);
+            }
+
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleAnswer(mapper.mapRow(cursor));
+            }
+        });
+    }
+
+    @Override
+    public long getLastChangeId() {
+        Cursor res = null;
+        try {
+            res = databaseFacade.rawQuery("select max(" + ChangeLog.ID + ") from " + ChangeLog.TABLE_NAME);
+            res.moveToFirst();
+            return res.isNull(0) ? 0 : res.getLong(0);
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+        }
+    }
+
+    @Override
+    public Optional<Long> getCheckpoint() {
+        Cursor res = null;
+        try {
+            res = databaseFacade.rawQuery("select " + ExportCheckpoint.LAST_CHANGE_ID +
+                                          " from " + ExportCheckpoint.TABLE_NAME);
+            if (res.moveToFirst()) {
+                return Optional.of(res.getLong(0));
+            }
+            return Optional.absent();
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+        }
+    }
+
+    @Override
+    public void saveCheckpoint(final long changeId) {
+        databaseFacade.doInTransaction(new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(ExportCheckpoint.ID, ExportCheckpoint.SINGLE_ROW_ID);
+                contentValues.put(ExportCheckpoint.LAST_CHANGE_ID, changeId);
+                databaseFacade.replace(ExportCheckpoint.TABLE_NAME, contentValues);
+                databaseFacade.delete(ChangeLog.TABLE_NAME, ChangeLog.ID + " <= ?",
+                                      new String[]{String.valueOf(changeId)});
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void readChanges(long afterChangeId, long upToChangeId, ChangeHandler handler) {
+        String[] range = {String.valueOf(afterChangeId), String.valueOf(upToChangeId)};
+        readDeletions(range, handler);
+        readTranslations(" where t." + Translations.ID + " in (select c." + ChangeLog.ROW_ID +
+                         changesIn(Translations.TABLE_NAME) + ")", range, handler);
+        readLabels(" where exists (select 1" + changesIn(LabelledTranslation.TABLE_NAME) +
+                   " and c." + ChangeLog.ROW_ID + " = lt." + LabelledTranslation.TRANSLATION_ID +
+                   " and c." + ChangeLog.LABEL_ID + " = lt." + LabelledTranslation.LABEL_ID + ")", range, handler);
+        readAnswers(" where a." + AnswersLog.ID + " in (select c." + ChangeLog.ROW_ID +
+                    changesIn(AnswersLog.TABLE_NAME) + ")", range, handler);
+    }
+
+    private void readDeletions(String[] range, final ChangeHandler handler) {
+        databaseFacade.forEachRow("select distinct c." + ChangeLog.ROW_ID + changesIn(AnswersLog.TABLE_NAME) +
+                                  " and not exists (select 1 from " + AnswersLog.TABLE_NAME + " a" +
+                                  " where a." + AnswersLog.ID + " = c." + ChangeLog.ROW_ID + ")", range,
+                                  new DeletedRowCallback() {
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleDeletedAnswer(cursor.getLong(rowIdColumn));
+            }
+        });
+        databaseFacade.forEachRow("select distinct c." + ChangeLog.ROW_ID + ", c." + ChangeLog.LABEL_ID +
+                                  changesIn(LabelledTranslation.TABLE_NAME) +
+                                  " and not exists (select 1 from " + LabelledTranslation.TABLE_NAME + " lt" +
+                                  " where lt." + LabelledTranslation.TRANSLATION_ID + " = c." +
+                                  ChangeLog.ROW_ID + " and lt." + LabelledTranslation.LABEL_ID + " = c." +
+                                  ChangeLog.LABEL_ID + ")", range, new DeletedRowCallback() {
+            private int labelIdColumn;
+
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                super.resolveColumns(cursor);
+                labelIdColumn = cursor.getColumnIndexOrThrow(ChangeLog.LABEL_ID);
+            }
+
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleDeletedLabel(cursor.getInt(rowIdColumn), Label.fromId(cursor.getInt(labelIdColumn)));
+            }
+        });
+        databaseFacade.forEachRow("select distinct c." + ChangeLog.ROW_ID + changesIn(Translations.TABLE_NAME) +
+                                  " and not exists (select 1 from " + Translations.TABLE_NAME + " t" +
+                                  " where t." + Translations.ID + " = c." + ChangeLog.ROW_ID + ")", range,
+                                  new DeletedRowCallback() {
+            @Override
+            public void handleRow(Cursor cursor) {
+                handler.handleDeletedTranslation(cursor.getInt(rowIdColumn));
+            }
+        });
+    }
+
+    private String changesIn(String table) {
+        return " from " + ChangeLog.TABLE_NAME + " c" +
+               " where c." + ChangeLog.TABLE + " = '" + table + "'" +
+               " and c." + ChangeLog.ID + " > ? and c." + ChangeLog.ID + " <= ?";
+    }
+
+    @Override
+    public void replaceAll(final BackupRowSource source) {
+        databaseFacade.doInTransaction(new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                databaseFacade.execSql("delete from " + ExportCheckpoint.TABLE_NAME);
+                databaseFacade.execSql("delete from " + AnswersLog.TABLE_NAME);
+                databaseFacade.execSql("delete from " + TranslationSchedule.TABLE_NAME);
+                databaseFacade.execSql("delete from " + LabelledTranslation.TABLE_NAME);
+                databaseFacade.execSql("delete from " + Translations.TABLE_NAME);
+                StatementsWriter writer = new StatementsWriter();
+                try {
+                    while (source.readNext(writer)) {
+                    }
+                } finally {
+                    writer.close();
+                }
+                saveCheckpoint(getLastChangeId());
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void applyChanges(final ChangeSource source) {
+        databaseFacade.doInTransaction(new Transactable<Void>() {
+            @Override
+            public Void perform() {
+                databaseFacade.execSql("delete from " + ExportCheckpoint.TABLE_NAME);
+                ChangesWriter writer = new ChangesWriter();
+                while (source.readNext(writer)) {
+                }
+                saveCheckpoint(getLastChangeId());
+                return null;
+            }
+        });
+    }
+
+    private abstract static class DeletedRowCallback implements RowCallback {
+        protected int rowIdColumn;
+
+        @Override
+        public void resolveColumns(Cursor cursor) {
+            rowIdColumn = cursor.getColumnIndexOrThrow(ChangeLog.ROW_ID);
+        }
+    }
+
+    private class ChangesWriter implements ChangeHandler {
+        @Override
+        public void handleTranslation(int id, String foreignWord, String nativeWord) {
+            int updated = databaseFacade.executeUpdateDelete(
+                "update " + Translations.TABLE_NAME + " set " +
+                Translations.FOREIGN_WORD + " = ?, " +
+                Translations.NATIVE_WORD + " = ? where " +
+                Translations.ID + " = ?", foreignWord, nativeWord, id);
+            if (updated == 0) {
+                databaseFacade.executeInsert("insert into " + Translations.TABLE_NAME + " (" +
+                                             Translations.ID + ", " +
+                                             Translations.FOREIGN_WORD + ", " +
+                                             Translations.NATIVE_WORD + ") values (?, ?, ?)",
+                                             id, foreignWord, nativeWord);
+            }
+        }
+
+        @Override
+        public void handleLabel(int translationId, Label label) {
+            databaseFacade.executeUpdateDelete("insert or ignore into " + LabelledTranslation.TABLE_NAME + " (" +
+                                               LabelledTranslation.TRANSLATION_ID + ", " +
+                                               LabelledTranslation.LABEL_ID + ") values (?, ?)",
+                                               translationId, label.getId());
+        }
+
+        @Override
+        public void handleAnswer(LoggedAnswer answer) {
+            AnswerAtTime answerAtTime = answer.getAnswerAtTime();
+            Feedback feedback = answerAtTime.getFeedback();
+            databaseFacade.executeUpdateDelete("insert or replace into " + AnswersLog.TABLE_NAME + " (" +
+                                               AnswersLog.ID + ", " +
+                                               AnswersLog.TRANSLATION_ID + ", " +
+                                               AnswersLog.TIME_ANSWERED + ", " +
+                                               AnswersLog.IS_CORRECT + ", " +
+                                               AnswersLog.FEEDBACK + ") values (?, ?, ?, ?, ?)",
+                                               answer.getId(), answer.getTranslationId(),
+                                               answerAtTime.getTimepoint().getTime(),
+                                               answerAtTime.getAnswer().isCorrect(),
+                                               feedback != null ? feedback.name() : null);
+        }
+
+        @Override
+        public void handleDeletedTranslation(int id) {
+            databaseFacade.executeUpdateDelete("delete from " + TranslationSchedule.TABLE_NAME + " where " +
+                                               TranslationSchedule.TRANSLATION_ID + " = ?", id);
+            databaseFacade.executeUpdateDelete("delete from " + AnswersLog.TABLE_NAME + " where " +
+                                               AnswersLog.TRANSLATION_ID + " = ?", id);
+            databaseFacade.executeUpdateDelete("delete from " + LabelledTranslation.TABLE_NAME + " where " +
+                                               LabelledTranslation.TRANSLATION_ID + " = ?", id);
+            databaseFacade.executeUpdateDelete("delete from " + Translations.TABLE_NAME + " where " +
+                                               Translations.ID + " = ?", id);
+        }
+
+        @Override
+        public void handleDeletedLabel(int translationId, Label label) {
+            databaseFacade.executeUpdateDelete("delete from " + LabelledTranslation.TABLE_NAME + " where " +
+                                               LabelledTranslation.TRANSLATION_ID + " = ? and " +
+                                               LabelledTranslation.LABEL_ID + " = ?", translationId, label.getId());
+        }
+
+        @Override
+        public void handleDeletedAnswer(long id) {
+            databaseFacade.executeUpdateDelete("delete from " + AnswersLog.TABLE_NAME + " where " +
+                                               AnswersLog.ID + " = ?", id);
+        }
+    }
+
+    private class StatementsWriter implements BackupRowHandler {
+        private final SQLiteStatement insertTranslation = databaseFacade.compileStatement(
+            "insert into " + Translations.TABLE_NAME + " (" +
+            Translations.ID + ", " +
+            Translations.FOREIGN_WORD + ", " +
+            Translations.NATIVE_WORD + ") values (?, ?, ?)");
+
+        private final SQLiteStatement insertLabel = databaseFacade.compileStatement(
+            "insert into " + LabelledTranslation.TABLE_NAME + " (" +
+            LabelledTranslation.TRANSLATION_ID + ", " +
+            LabelledTranslation.LABEL_ID + ") values (?, ?)");
+
+        private final SQLiteStatement insertAnswer = databaseFacade.compileStatement(
+            "insert into " + AnswersLog.TABLE_NAME + " (" +
+            AnswersLog.ID + ", " +
+            AnswersLog.TRANSLATION_ID + ", " +
+            AnswersLog.TIME_ANSWERED + ", " +
+            AnswersLog.IS_CORRECT + ", " +
+            AnswersLog.FEEDBACK + ") values (?, ?, ?, ?, ?)");
+
+        @Override
+        public void handleTranslation(int id, String foreignWord, String nativeWord) {
+            insertTranslation.bindLong(1, id);
+            insertTranslation.bindString(2, foreignWord);
+            insertTranslation.bindString(3, nativeWord);
+            insertTranslation.executeInsert();
+        }
+
+        @Override
+        public void handleLabel(int translationId, Label label) {
+            insertLabel.bindLong(1, translationId);
+            insertLabel.bindLong(2, label.getId());
+            insertLabel.executeInsert();
+        }
+
+        @Override
+        public void handleAnswer(LoggedAnswer answer) {
+            AnswerAtTime answerAtTime = answer.getAnswerAtTime();
+            insertAnswer.bindLong(1, answer.getId());
+            insertAnswer.bindLong(2, answer.getTranslationId());
+            insertAnswer.bindLong(3, answerAtTime.getTimepoint().getTime());
+            insertAnswer.bindLong(4, answerAtTime.getAnswer().isCorrect() ? 1 : 0);
+            if (answerAtTime.getFeedback() != null) {
+                insertAnswer.bindString(5, answerAtTime.getFeedback().name());
+            } else {
+                insertAnswer.bindNull(5);
+            }
+            insertAnswer.executeInsert();
+        }
+
+        public void close() {
+            insertTranslation.close();
+            insertLabel.close();
+            insertAnswer.close();
+        }
+    }
+}
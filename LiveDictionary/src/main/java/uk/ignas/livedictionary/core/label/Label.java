@@ -16,5 +16,17 @@ public enum Label {
         return id;
     }
 
+    public int getMask() {
+        return 1 << (id - 1);
+    }
+
+    public static Label fromId(int id) {
+        for (Label label : values()) {
+            if (label.id == id) {
+                return label;
+            }
+        }
+        throw new IllegalArgumentException("unknown label id: " + id);
+    }
 
 }
@@ -10,7 +10,10 @@ import java.util.List;
 
 public interface LabelDao {
     void addLabelledTranslation(Integer translationId, uk.ignas.livedictionary.core.label.Label label);
+    int addLabelledTranslations(List<Integer> translationIds, uk.ignas.livedictionary.core.label.Label label);
+    int labelTranslationsAnsweredIncorrectlyAtLeast(int times, uk.ignas.livedictionary.core.label.Label label);
     void deleteLabelledTranslationsByTranslationIds(List<Integer> translationIds);
+    int deleteLabelledTranslations(List<Integer> translationIds, uk.ignas.livedictionary.core.label.Label label);
     void deleteLabelledTranslation(Integer translationId, uk.ignas.livedictionary.core.label.Label label);
     Collection<Integer> getTranslationIdsWithLabel(uk.ignas.livedictionary.core.label.Label label);
 }
@@ -0,0 +1,122 @@
+package uk.ignas.livedictionary.core.label;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class LabelSet extends AbstractSet<Label> {
+    private static final Label[] LABELS = Label.values();
+
+    private int mask;
+
+    public LabelSet() {
+    }
+
+    public LabelSet(int mask) {
+        this.mask = mask;
+    }
+
+    public static int maskOf(Collection<Label> labels) {
+        if (labels instanceof LabelSet) {
+            return ((LabelSet) labels).mask;
+        }
+        int mask = 0;
+        for (Label label : labels) {
+            mask |= label.getMask();
+        }
+        return mask;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public void setMask(int mask) {
+        this.mask = mask;
+    }
+
+    public boolean containsAny(int labelMask) {
+        return (mask & labelMask) != 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Label && containsAny(((Label) o).getMask());
+    }
+
+    @Override
+    public boolean add(Label label) {
+        int previous = mask;
+        mask |= label.getMask();
+        return mask != previous;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) {
+            return false;
+        }
+        mask &= ~((Label) o).getMask();
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Label> labels) {
+        int previous = mask;
+        for (Label label : labels) {
+            mask |= label.getMask();
+        }
+        return mask != previous;
+    }
+
+    @Override
+    public void clear() {
+        mask = 0;
+    }
+
+    @Override
+    public int size() {
+        return Integer.bitCount(mask);
+    }
+
+    @Override
+    public Iterator<Label> iterator() {
+        return new Iterator<Label>() {
+            private int next = nextIndex(0);
+            private Label last;
+
+            @Override
+            public boolean hasNext() {
+                return next < LABELS.length;
+            }
+
+            @Override
+            public Label next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = LABELS[next];
+                next = nextIndex(next + 1);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                mask &= ~last.getMask();
+                last = null;
+            }
+
+            private int nextIndex(int from) {
+                int index = from;
+                while (index < LABELS.length && !containsAny(LABELS[index].getMask())) {
+                    index++;
+                }
+                return index;
+            }
+        };
+    }
+}
@@ -1,17 +1,20 @@
 package uk.ignas.livedictionary.core.label;
 
 import android.database.Cursor;
-import com.google.common.base.Joiner;
+import uk.ignas.livedictionary.core.SqliteTranslationDao.Translations;
+import uk.ignas.livedictionary.core.answer.SqliteAnswerDao.AnswersLog;
 import uk.ignas.livedictionary.core.util.DatabaseFacade;
+import uk.ignas.livedictionary.core.util.RowMapper;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import static org.apache.commons.lang.Validate.notNull;
+
 public class SqliteLabelDao implements LabelDao{
     private final DatabaseFacade databaseFacade;
 
-    private static class LabelledTranslation {
+    public static class LabelledTranslation {
         public static final String TABLE_NAME = "labelled_translation";
 
         public static final String ID = "id";
@@ -34,48 +37,72 @@ public class SqliteLabelDao implements LabelDao{
     }
 
     public void addLabelledTranslation(Integer translationId, uk.ignas.livedictionary.core.label.Label label) {
-        databaseFacade.execSql("insert into " +
-                               LabelledTranslation.TABLE_NAME + " (" +
-                               LabelledTranslation.TRANSLATION_ID + ", " +
-                               LabelledTranslation.LABEL_ID + ") " + "VALUES (" +
-                               translationId + ", " +
-                               label.getId() + ")");
+        notNull(translationId);
+        databaseFacade.executeInsert("insert or ignore into " +
+                                     LabelledTranslation.TABLE_NAME + " (" +
+                                     LabelledTranslation.TRANSLATION_ID + ", " +
+                                     LabelledTranslation.LABEL_ID + ") values (?, ?)",
+                                     translationId, label.getId());
+    }
+
+    public int addLabelledTranslations(List<Integer> translationIds, uk.ignas.livedictionary.core.label.Label label) {
+        return databaseFacade.executeInChunks("insert or ignore into " +
+                                              LabelledTranslation.TABLE_NAME + " (" +
+                                              LabelledTranslation.TRANSLATION_ID + ", " +
+                                              LabelledTranslation.LABEL_ID + ") select " +
+                                              Translations.ID + ", ? from " + Translations.TABLE_NAME +
+                                              " where " + Translations.ID + " in (%s)",
+                                              translationIds, label.getId());
+    }
+
+    public int labelTranslationsAnsweredIncorrectlyAtLeast(int times, uk.ignas.livedictionary.core.label.Label label) {
+        return databaseFacade.executeUpdateDelete("insert or ignore into " +
+                                                  LabelledTranslation.TABLE_NAME + " (" +
+                                                  LabelledTranslation.TRANSLATION_ID + ", " +
+                                                  LabelledTranslation.LABEL_ID + ") select " +
+                                                  AnswersLog.TRANSLATION_ID + ", ? from " + AnswersLog.TABLE_NAME +
+                                                  " where " + AnswersLog.IS_CORRECT + " = 0" +
+                                                  " group by " + AnswersLog.TRANSLATION_ID +
+                                                  " having count(*) >= ?",
+                                                  label.getId(), times);
     }
 
     public void deleteLabelledTranslationsByTranslationIds(List<Integer> translationIds) {
-        String inClause = Joiner.on(", ").join(translationIds);
-        databaseFacade.execSql("DELETE FROM " + LabelledTranslation.TABLE_NAME + " WHERE " +
-                               LabelledTranslation.TRANSLATION_ID + " IN (" + inClause + ") ");
+        databaseFacade.deleteWhereIn(LabelledTranslation.TABLE_NAME, LabelledTranslation.TRANSLATION_ID, translationIds);
+    }
+
+    public int deleteLabelledTranslations(List<Integer> translationIds, uk.ignas.livedictionary.core.label.Label label) {
+        return databaseFacade.executeInChunks("delete from " + LabelledTranslation.TABLE_NAME + " where " +
+                                              LabelledTranslation.LABEL_ID + " = ? and " +
+                                              LabelledTranslation.TRANSLATION_ID + " in (%s)",
+                                              translationIds, label.getId());
     }
 
     public void deleteLabelledTranslation(Integer translationId, uk.ignas.livedictionary.core.label.Label label) {
-        databaseFacade.execSql("DELETE FROM " + LabelledTranslation.TABLE_NAME + " WHERE " +
-                               LabelledTranslation.TRANSLATION_ID + " = " + translationId + " AND " +
-                               LabelledTranslation.LABEL_ID + " = " + label.getId());
+        databaseFacade.executeUpdateDelete("delete from " + LabelledTranslation.TABLE_NAME + " where " +
+                                           LabelledTranslation.TRANSLATION_ID + " = ? and " +
+                                           LabelledTranslation.LABEL_ID + " = ?",
+                                           translationId, label.getId());
     }
 
     public Collection<Integer> getTranslationIdsWithLabel(uk.ignas.livedictionary.core.label.Label label) {
-        List<Integer> translationIds = new ArrayList<>();
-
-        Cursor res = null;
-        try {
-            String sql = "select " +
-                         LabelledTranslation.TRANSLATION_ID + " " +
-                         " from " + LabelledTranslation.TABLE_NAME + " where " +
-                         LabelledTranslation.LABEL_ID + " = " + label.getId();
-            res = databaseFacade.rawQuery(sql);
-            res.moveToFirst();
-
-            while (!res.isAfterLast()) {
-                translationIds.add(res.getInt(res.getColumnIndex(LabelledTranslation.TRANSLATION_ID)));
-                res.moveToNext();
+        String sql = "select " +
+                     LabelledTranslation.TRANSLATION_ID + " " +
+                     " from " + LabelledTranslation.TABLE_NAME + " where " +
+                     LabelledTranslation.LABEL_ID + " = ?";
+        return databaseFacade.queryForList(sql, new String[]{String.valueOf(label.getId())}, new RowMapper<Integer>() {
+            private int translationIdColumn;
+
+            @Override
+            public void resolveColumns(Cursor cursor) {
+                translationIdColumn = cursor.getColumnIndexOrThrow(LabelledTranslation.TRANSLATION_ID);
             }
-        } finally {
-            if (res != null) {
-                res.close();
+
+            @Override
+            public Integer mapRow(Cursor cursor) {
+                return cursor.getInt(translationIdColumn);
             }
-        }
-        return translationIds;
+        });
     }
 
 }
@@ -5,11 +5,38 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DatabaseFacade extends SQLiteOpenHelper {
     public static final String DATABASE_NAME = "LiveDictionary.db";
 
-    public static final int CURRENT_DB_VERSION = 4;
+    public static final int CURRENT_DB_VERSION = 9;
+
+    public static final int STATEMENT_CACHE_SIZE = 32;
+
+    public static final int DELETE_CHUNK_SIZE = 500;
+
+    private static final String SELECT_CHANGES = "select changes()";
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Map<String, SQLiteStatement> statementCache =
+        new LinkedHashMap<String, SQLiteStatement>(STATEMENT_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    eldest.getValue().close();
+                    return true;
+                }
+                return false;
+            }
+        };
 
     public DatabaseFacade(Context context) {
         super(context, DATABASE_NAME, null, CURRENT_DB_VERSION);
@@ -104,6 +131,60 @@ public class DatabaseFacade extends SQLiteOpenHelper {
         db.execSQL("alter table answers_log add column feedback text");
     }
 
+    private void prepareDbV5(SQLiteDatabase db) {
+        db.execSQL("create table translation_schedule (translation_id integer primary key, "
+                   + "promotion_level integer NOT NULL, restricted_until integer, "
+                   + "last_answer_correct integer NOT NULL, "
+                   + "FOREIGN KEY(translation_id) REFERENCES translations(id))");
+        db.execSQL("create index translation_schedule_restricted_until on translation_schedule (restricted_until)");
+    }
+
+    private void prepareDbV6(SQLiteDatabase db) {
+        db.execSQL("create index labelled_translation_label_id on labelled_translation (label_id, translation_id)");
+    }
+
+    private void prepareDbV7(SQLiteDatabase db) {
+        db.execSQL("create table change_log (id integer primary key autoincrement, table_name text NOT NULL, "
+                   + "row_id integer NOT NULL, label_id integer NOT NULL)");
+        db.execSQL("create unique index change_log_entity on change_log (table_name, row_id, label_id)");
+        db.execSQL("create table export_checkpoint (id integer primary key, last_change_id integer NOT NULL)");
+        createChangeLogTriggerV7(db, "translations_inserted", "insert", "translations", "new.id", "0");
+        createChangeLogTriggerV7(db, "translations_updated", "update of nativeWord, foreignWord", "translations",
+                                 "new.id", "0");
+        createChangeLogTriggerV7(db, "translations_deleted", "delete", "translations", "old.id", "0");
+        createChangeLogTriggerV7(db, "labelled_translation_inserted", "insert", "labelled_translation",
+                                 "new.translation_id", "new.label_id");
+        createChangeLogTriggerV7(db, "labelled_translation_deleted", "delete", "labelled_translation",
+                                 "old.translation_id", "old.label_id");
+        createChangeLogTriggerV7(db, "answers_log_inserted", "insert", "answers_log", "new.id", "0");
+        createChangeLogTriggerV7(db, "answers_log_deleted", "delete", "answers_log", "old.id", "0");
+    }
+
+    private void prepareDbV8(SQLiteDatabase db) {
+        db.execSQL("create index answers_log_translation_id on answers_log "
+                   + "(translation_id, time_answered, id, is_correct, feedback)");
+    }
+
+    private void prepareDbV9(SQLiteDatabase db) {
+        db.execSQL("alter table translations add column label_mask integer NOT NULL default 0");
+        db.execSQL("update translations set label_mask = (select coalesce(sum(1 << (label_id - 1)), 0) "
+                   + "from labelled_translation where translation_id = translations.id)");
+        db.execSQL("create trigger labelled_translation_mask_set after insert on labelled_translation begin "
+                   + "update translations set label_mask = label_mask | (1 << (new.label_id - 1)) "
+                   + "where id = new.translation_id; end");
+        db.execSQL("create trigger labelled_translation_mask_cleared after delete on labelled_translation begin "
+                   + "update translations set label_mask = label_mask & ~(1 << (old.label_id - 1)) "
+                   + "where id = old.translation_id; end");
+    }
+
+    private void createChangeLogTriggerV7(SQLiteDatabase db, String name, String event, String table, String rowId,
+                                          String labelId) {
+        db.execSQL("create trigger " + name + " after " + event + " on " + table
+                   + " when exists (select 1 from export_checkpoint) begin "
+                   + "insert or replace into change_log (table_name, row_id, label_id) values ('" + table + "', "
+                   + rowId + ", " + labelId + "); end");
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         if (oldVersion < 2) {
@@ -115,6 +196,21 @@ public class DatabaseFacade extends SQLiteOpenHelper {
         if (oldVersion < 4) {
             prepareDbV4(db);
         }
+        if (oldVersion < 5) {
+            prepareDbV5(db);
+        }
+        if (oldVersion < 6) {
+            prepareDbV6(db);
+        }
+        if (oldVersion < 7) {
+            prepareDbV7(db);
+        }
+        if (oldVersion < 8) {
+            prepareDbV8(db);
+        }
+        if (oldVersion < 9) {
+            prepareDbV9(db);
+        }
     }
 
     @Override
@@ -130,6 +226,11 @@ public class DatabaseFacade extends SQLiteOpenHelper {
         return db.insert(tableName, null, contentValues);
     }
 
+    public long replace(String tableName, ContentValues contentValues) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        return db.replace(tableName, null, contentValues);
+    }
+
     public <T> T doInTransaction(Transactable<T> transactable) {
         T result = null;
         SQLiteDatabase db = this.getWritableDatabase();
@@ -143,6 +244,121 @@ public class DatabaseFacade extends SQLiteOpenHelper {
         return result;
     }
 
+    public SQLiteStatement compileStatement(String sql) {
+        return this.getWritableDatabase().compileStatement(sql);
+    }
+
+    public long executeInsert(String sql, Object... args) {
+        synchronized (statementCache) {
+            SQLiteStatement statement = bind(sql, args);
+            try {
+                return statement.executeInsert();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    public long executeInsertOrIgnore(String sql, Object... args) {
+        synchronized (statementCache) {
+            SQLiteStatement statement = bind(sql, args);
+            long id;
+            try {
+                id = statement.executeInsert();
+            } finally {
+                statement.clearBindings();
+            }
+            return id != -1 && bind(SELECT_CHANGES, NO_ARGS).simpleQueryForLong() > 0 ? id : -1;
+        }
+    }
+
+    public int executeUpdateDelete(String sql, Object... args) {
+        synchronized (statementCache) {
+            SQLiteStatement statement = bind(sql, args);
+            try {
+                return statement.executeUpdateDelete();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    public int deleteWhereIn(String tableName, String column, List<?> values) {
+        return executeInChunks("delete from " + tableName + " where " + column + " in (%s)", values);
+    }
+
+    public int executeInChunks(final String sqlWithInList, final List<?> values, final Object... leadingArgs) {
+        return doInTransaction(new Transactable<Integer>() {
+            @Override
+            public Integer perform() {
+                String sql = String.format(sqlWithInList, placeholders(DELETE_CHUNK_SIZE));
+                int changed = 0;
+                for (int from = 0; from < values.size(); from += DELETE_CHUNK_SIZE) {
+                    List<?> chunk = values.subList(from, Math.min(from + DELETE_CHUNK_SIZE, values.size()));
+                    Object[] args = new Object[leadingArgs.length + DELETE_CHUNK_SIZE];
+                    System.arraycopy(leadingArgs, 0, args, 0, leadingArgs.length);
+                    System.arraycopy(chunk.toArray(), 0, args, leadingArgs.length, chunk.size());
+                    Arrays.fill(args, leadingArgs.length + chunk.size(), args.length, chunk.get(chunk.size() - 1));
+                    changed += executeUpdateDelete(sql, args);
+                }
+                return changed;
+            }
+        });
+    }
+
+    private SQLiteStatement bind(String sql, Object[] args) {
+        SQLiteStatement statement = statementCache.get(sql);
+        if (statement == null) {
+            statement = compileStatement(sql);
+            statementCache.put(sql, statement);
+        }
+        for (int i = 0; i < args.length; i++) {
+            bindArg(statement, i + 1, args[i]);
+        }
+        return statement;
+    }
+
+    private void bindArg(SQLiteStatement statement, int index, Object arg) {
+        if (arg == null) {
+            statement.bindNull(index);
+        } else if (arg instanceof Integer || arg instanceof Long) {
+            statement.bindLong(index, ((Number) arg).longValue());
+        } else if (arg instanceof Boolean) {
+            statement.bindLong(index, (Boolean) arg ? 1 : 0);
+        } else if (arg instanceof Double || arg instanceof Float) {
+            statement.bindDouble(index, ((Number) arg).doubleValue());
+        } else if (arg instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) arg);
+        } else {
+            statement.bindString(index, arg.toString());
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    public int getCachedStatementCount() {
+        synchronized (statementCache) {
+            return statementCache.size();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        synchronized (statementCache) {
+            for (SQLiteStatement statement : statementCache.values()) {
+                statement.close();
+            }
+            statementCache.clear();
+        }
+        super.close();
+    }
+
     public void execSql(String sql) {
         this.getWritableDatabase().execSQL(sql);
     }
@@ -162,4 +378,35 @@ public class DatabaseFacade extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
         return db.rawQuery(sql, null);
     }
+
+    public Cursor rawQuery(String sql, String[] args) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.rawQuery(sql, args);
+    }
+
+    public <T> List<T> queryForList(String sql, String[] args, RowMapper<T> mapper) {
+        Cursor res = rawQuery(sql, args);
+        try {
+            List<T> rows = new ArrayList<>(res.getCount());
+            mapper.resolveColumns(res);
+            while (res.moveToNext()) {
+                rows.add(mapper.mapRow(res));
+            }
+            return rows;
+        } finally {
+            res.close();
+        }
+    }
+
+    public void forEachRow(String sql, String[] args, RowCallback callback) {
+        Cursor res = rawQuery(sql, args);
+        try {
+            callback.resolveColumns(res);
+            while (res.moveToNext()) {
+                callback.handleRow(res);
+            }
+        } finally {
+            res.close();
+        }
+    }
 }
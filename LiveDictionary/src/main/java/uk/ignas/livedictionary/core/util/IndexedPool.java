@@ -0,0 +1,57 @@
+package uk.ignas.livedictionary.core.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class IndexedPool<T> {
+    private final List<T> elements = new ArrayList<>();
+
+    private final Map<T, Integer> positions = new HashMap<>();
+
+    public boolean add(T element) {
+        if (positions.containsKey(element)) {
+            return false;
+        }
+        positions.put(element, elements.size());
+        elements.add(element);
+        return true;
+    }
+
+    public boolean remove(T element) {
+        Integer position = positions.remove(element);
+        if (position == null) {
+            return false;
+        }
+        int lastPosition = elements.size() - 1;
+        T last = elements.remove(lastPosition);
+        if (position != lastPosition) {
+            elements.set(position, last);
+            positions.put(last, position);
+        }
+        return true;
+    }
+
+    public boolean contains(T element) {
+        return positions.containsKey(element);
+    }
+
+    public T pickRandom(Random random) {
+        return elements.get(random.nextInt(elements.size()));
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    public void clear() {
+        elements.clear();
+        positions.clear();
+    }
+}
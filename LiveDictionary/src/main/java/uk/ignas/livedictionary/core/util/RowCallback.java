@@ -0,0 +1,9 @@
+package uk.ignas.livedictionary.core.util;
+
+import android.database.Cursor;
+
+public interface RowCallback {
+    void resolveColumns(Cursor cursor);
+
+    void handleRow(Cursor cursor);
+}
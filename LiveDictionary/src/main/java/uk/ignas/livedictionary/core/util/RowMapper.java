@@ -0,0 +1,9 @@
+package uk.ignas.livedictionary.core.util;
+
+import android.database.Cursor;
+
+public interface RowMapper<T> {
+    void resolveColumns(Cursor cursor);
+
+    T mapRow(Cursor cursor);
+}
@@ -1,30 +1,43 @@
 package integration;
 
+import android.database.Cursor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import uk.ignas.livedictionary.BuildConfig;
 import uk.ignas.livedictionary.core.ForeignWord;
+import uk.ignas.livedictionary.core.InsertionOutcome;
 import uk.ignas.livedictionary.core.NativeWord;
+import uk.ignas.livedictionary.core.SqliteTranslationDao;
 import uk.ignas.livedictionary.core.Translation;
 import uk.ignas.livedictionary.core.TranslationDao;
+import uk.ignas.livedictionary.core.TranslationMetadata;
 import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
+import uk.ignas.livedictionary.core.answer.PendingAnswer;
+import uk.ignas.livedictionary.core.answer.ReviewSchedule;
+import uk.ignas.livedictionary.core.backup.BackupDao;
+import uk.ignas.livedictionary.core.backup.ChangeHandler;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
+import uk.ignas.livedictionary.core.util.DatabaseFacade;
 import uk.ignas.livedictionary.testutils.DaoCreator;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import static com.google.common.collect.Iterables.getLast;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static uk.ignas.livedictionary.testutils.LiveDictionaryDsl.createForeignToNativeTranslation;
 
 
 @RunWith(RobolectricGradleTestRunner.class)
@@ -59,6 +72,274 @@ public class DaoIntegrationTest {
         assertThat(numberOfSameRecords, is(equalTo(1)));
     }
 
+    @Test
+    public void batchInsertionShouldReportDuplicatesInsteadOfThrowing() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        translationDao.insertSingleWithLabels(new Translation(new ForeignWord("la palabra"), new NativeWord("a word")));
+
+        List<InsertionOutcome> outcomes = translationDao.insertInBatches(
+            newArrayList(new Translation(new ForeignWord("la palabra"), new NativeWord("a word")),
+                         new Translation(new ForeignWord("la cocina"), new NativeWord("kitchen")),
+                         new Translation(new ForeignWord("la cocina"), new NativeWord("kitchen"))));
+
+        assertThat(outcomes, hasSize(3));
+        assertThat(outcomes.get(0).isDuplicate(), is(true));
+        assertThat(outcomes.get(1).isDuplicate(), is(false));
+        assertThat(outcomes.get(1).getId(), is(equalTo(getLast(translationDao.getAllTranslations()).getId())));
+        assertThat(outcomes.get(2).isDuplicate(), is(true));
+        assertThat(translationDao.getAllTranslations(), hasSize(2));
+    }
+
+    @Test
+    public void batchInsertionShouldInsertTranslationsSpanningSeveralBatchesWithLabels() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.clearDbAndCreateLabelDao();
+        List<Translation> translations = new ArrayList<>();
+        for (int i = 0; i < SqliteTranslationDao.INSERTION_BATCH_SIZE + 1; i++) {
+            Translation translation = new Translation(new ForeignWord("la palabra" + i), new NativeWord("word" + i));
+            translation.getMetadata().getLabels().add(Label.A);
+            translations.add(translation);
+        }
+
+        translationDao.insertInBatches(translations);
+
+        assertThat(translationDao.getAllTranslations(), hasSize(SqliteTranslationDao.INSERTION_BATCH_SIZE + 1));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.A), hasSize(SqliteTranslationDao.INSERTION_BATCH_SIZE + 1));
+    }
+
+    @Test
+    public void deletingTranslationsSpanningSeveralChunksShouldDeleteThemWithLabelsAndAnswers() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        List<Translation> translations = new ArrayList<>();
+        for (int i = 0; i < DatabaseFacade.DELETE_CHUNK_SIZE + 1; i++) {
+            Translation translation = new Translation(new ForeignWord("la palabra" + i), new NativeWord("word" + i));
+            translation.getMetadata().getLabels().add(Label.A);
+            translations.add(translation);
+        }
+        translationDao.insertInBatches(translations);
+        Translation lastTranslation = getLast(translationDao.getAllTranslations());
+        answerDao.logAnswer(lastTranslation.getId(), CORRECT_NOW);
+
+        translationDao.delete(translationDao.getAllTranslations());
+
+        assertThat(translationDao.getAllTranslations(), is(empty()));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.A), is(empty()));
+        assertThat(answerDao.getAnswersLogByTranslationId().isEmpty(), is(true));
+    }
+
+    @Test
+    public void labelMaskShouldFollowLabelledTranslations() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+
+        labelDao.addLabelledTranslation(translationId, Label.A);
+        labelDao.addLabelledTranslation(translationId, Label.C);
+        labelDao.deleteLabelledTranslation(translationId, Label.A);
+
+        Translation translation = translationDao.getAllTranslations().get(0);
+        assertThat(translation.getMetadata().getLabels().getMask(), is(Label.C.getMask()));
+        assertThat(translation.getMetadata().getLabels(), contains(Label.C));
+    }
+
+    @Test
+    public void noTranslationShouldHaveAnyOfNoLabels() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        translationDao.insert(newArrayList(createForeignToNativeTranslation("la palabra", "word")));
+        labelDao.addLabelledTranslation(translationDao.getAllTranslations().get(0).getId(), Label.A);
+
+        assertThat(translationDao.getTranslationsWithAnyOfLabels(Collections.<Label>emptySet()), is(empty()));
+    }
+
+    @Test
+    public void translationPagesShouldFollowEachOtherById() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        translationDao.insert(newArrayList(createForeignToNativeTranslation("uno", "one"),
+                                           createForeignToNativeTranslation("dos", "two"),
+                                           createForeignToNativeTranslation("tres", "three")));
+
+        List<Translation> firstPage = translationDao.getTranslationsPage(0, 2);
+        List<Translation> secondPage = translationDao.getTranslationsPage(getLast(firstPage).getId(), 2);
+
+        assertThat(firstPage, hasSize(2));
+        assertThat(firstPage.get(0).getNativeWord().get(), is("one"));
+        assertThat(firstPage.get(1).getNativeWord().get(), is("two"));
+        assertThat(secondPage, hasSize(1));
+        assertThat(secondPage.get(0).getNativeWord().get(), is("three"));
+        assertThat(translationDao.getTranslationsPage(getLast(secondPage).getId(), 2), is(empty()));
+    }
+
+    @Test
+    public void labelledTranslationPagesShouldSkipTranslationsWithoutLabel() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        Translation labelled = createForeignToNativeTranslation("uno", "one");
+        labelled.getMetadata().getLabels().add(Label.A);
+        Translation otherLabelled = createForeignToNativeTranslation("tres", "three");
+        otherLabelled.getMetadata().getLabels().add(Label.A);
+        translationDao.insert(newArrayList(labelled, createForeignToNativeTranslation("dos", "two"), otherLabelled));
+
+        List<Translation> firstPage = translationDao.getTranslationsWithLabelPage(Label.A, 0, 1);
+        List<Translation> secondPage = translationDao.getTranslationsWithLabelPage(Label.A, firstPage.get(0).getId(), 1);
+
+        assertThat(firstPage.get(0).getNativeWord().get(), is("one"));
+        assertThat(secondPage.get(0).getNativeWord().get(), is("three"));
+        assertThat(translationDao.getTranslationsWithLabelPage(Label.A, secondPage.get(0).getId(), 1), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSizeShouldBePositive() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+
+        translationDao.getTranslationsPage(0, 0);
+    }
+
+    @Test
+    public void statementCacheShouldReuseStatementsAndEvictBeyondItsBound() {
+        DatabaseFacade databaseFacade = DaoCreator.createDatabase();
+        String sql = "delete from translations where id = ?";
+
+        databaseFacade.executeUpdateDelete(sql, -1);
+        databaseFacade.executeUpdateDelete(sql, -2);
+        int cachedAfterReuse = databaseFacade.getCachedStatementCount();
+        for (int i = 0; i < DatabaseFacade.STATEMENT_CACHE_SIZE + 1; i++) {
+            databaseFacade.executeUpdateDelete(sql + " or id = " + (-i));
+        }
+
+        assertThat(cachedAfterReuse, is(1));
+        assertThat(databaseFacade.getCachedStatementCount(), is(DatabaseFacade.STATEMENT_CACHE_SIZE));
+    }
+
+    @Test
+    public void chunksOfAnySizeShouldShareOneCachedStatement() {
+        DatabaseFacade databaseFacade = DaoCreator.createDatabase();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= DatabaseFacade.DELETE_CHUNK_SIZE + 3; i++) {
+            ids.add(-i);
+        }
+
+        databaseFacade.deleteWhereIn("translations", "id", ids);
+        databaseFacade.deleteWhereIn("translations", "id", ids.subList(0, 7));
+
+        assertThat(databaseFacade.getCachedStatementCount(), is(1));
+    }
+
+    @Test
+    public void changesShouldContainOnlyRowsModifiedAfterCheckpoint() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        BackupDao backupDao = DaoCreator.createBackupDao();
+        translationDao.insert(newArrayList(createForeignToNativeTranslation("la palabra", "word"),
+                                           createForeignToNativeTranslation("la cocina", "kitchen")));
+        Translation deleted = translationDao.getAllTranslations().get(0);
+        Translation updated = translationDao.getAllTranslations().get(1);
+        labelDao.addLabelledTranslation(deleted.getId(), Label.A);
+        long checkpoint = backupDao.getLastChangeId();
+        backupDao.saveCheckpoint(checkpoint);
+
+        translationDao.delete(newArrayList(deleted));
+        translationDao.updateAlongWithLabels(new Translation(updated.getId(), new ForeignWord("la cocinita"),
+                                                             new NativeWord("small kitchen"),
+                                                             new TranslationMetadata(new ArrayList<AnswerAtTime>())));
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la casa", "house"));
+        Translation inserted = getLast(translationDao.getAllTranslations());
+        answerDao.logAnswer(inserted.getId(), CORRECT_NOW);
+        final List<String> changes = new ArrayList<>();
+        backupDao.readChanges(backupDao.getCheckpoint().get(), backupDao.getLastChangeId(), new ChangeHandler() {
+            @Override
+            public void handleTranslation(int id, String foreignWord, String nativeWord) {
+                changes.add("translation " + foreignWord);
+            }
+
+            @Override
+            public void handleLabel(int translationId, Label label) {
+                changes.add("label " + translationId + " " + label);
+            }
+
+            @Override
+            public void handleAnswer(LoggedAnswer answer) {
+                changes.add("answer " + answer.getTranslationId());
+            }
+
+            @Override
+            public void handleDeletedTranslation(int id) {
+                changes.add("deleted translation " + id);
+            }
+
+            @Override
+            public void handleDeletedLabel(int translationId, Label label) {
+                changes.add("deleted label " + translationId + " " + label);
+            }
+
+            @Override
+            public void handleDeletedAnswer(long id) {
+                changes.add("deleted answer " + id);
+            }
+        });
+
+        assertThat(backupDao.getCheckpoint().get(), is(equalTo(checkpoint)));
+        assertThat(changes, contains("deleted label " + deleted.getId() + " A",
+                                     "deleted translation " + deleted.getId(),
+                                     "translation la cocinita",
+                                     "translation la casa",
+                                     "answer " + inserted.getId()));
+    }
+
+    @Test
+    public void changesShouldNotBeLoggedWithoutCheckpoint() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        BackupDao backupDao = DaoCreator.createBackupDao();
+
+        translationDao.insert(newArrayList(createForeignToNativeTranslation("la palabra", "word"),
+                                           createForeignToNativeTranslation("la cocina", "kitchen")));
+        translationDao.delete(translationDao.getAllTranslations());
+
+        assertThat(backupDao.getCheckpoint().isPresent(), is(false));
+        assertThat(countLoggedChanges(), is(0));
+    }
+
+    @Test
+    public void changeLogShouldKeepOneRowPerChangedRow() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        BackupDao backupDao = DaoCreator.createBackupDao();
+        translationDao.insert(newArrayList(createForeignToNativeTranslation("la palabra", "word"),
+                                           createForeignToNativeTranslation("la cocina", "kitchen"),
+                                           createForeignToNativeTranslation("la casa", "house")));
+        backupDao.saveCheckpoint(backupDao.getLastChangeId());
+        Translation updated = translationDao.getAllTranslations().get(0);
+        List<Integer> ids = new ArrayList<>();
+        for (Translation translation : translationDao.getAllTranslations()) {
+            ids.add(translation.getId());
+        }
+
+        for (String nativeWord : newArrayList("a word", "the word", "words")) {
+            translationDao.updateAlongWithLabels(new Translation(updated.getId(), updated.getForeignWord(),
+                                                                 new NativeWord(nativeWord),
+                                                                 new TranslationMetadata(new ArrayList<AnswerAtTime>())));
+        }
+        labelDao.addLabelledTranslations(ids, Label.A);
+        labelDao.deleteLabelledTranslations(ids, Label.A);
+        labelDao.addLabelledTranslations(ids, Label.A);
+        translationDao.delete(translationDao.getAllTranslations().subList(1, 3));
+
+        assertThat(countLoggedChanges(), is(6));
+    }
+
+    private int countLoggedChanges() {
+        Cursor res = DaoCreator.createDatabase().rawQuery("select count(*) from change_log");
+        try {
+            res.moveToFirst();
+            return res.getInt(0);
+        } finally {
+            res.close();
+        }
+    }
+
     @Test
     public void shouldInsertAnswerToExistingTranslation() {
         TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
@@ -84,6 +365,104 @@ public class DaoIntegrationTest {
         assertThat(answersDao.getAnswersLogByTranslationId().get(translationId).get(0).getFeedback(), is(Feedback.ASKED_TOO_OFTEN));
     }
 
+    @Test
+    public void shouldRetrieveOnlyAnswersLoggedAfterGivenAnswer() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+        answersDao.logAnswer(translationId, CORRECT_NOW);
+        long lastAnswerId = answersDao.getLastAnswerId();
+        answersDao.logAnswer(translationId, new AnswerAtTime(Answer.INCORRECT, new Date()));
+
+        List<LoggedAnswer> answers = answersDao.getAnswersLoggedAfter(lastAnswerId);
+
+        assertThat(answers, hasSize(1));
+        assertThat(answers.get(0).getId(), is(answersDao.getLastAnswerId()));
+        assertThat(answers.get(0).getTranslationId(), is(translationId));
+        assertThat(answers.get(0).getAnswerAtTime().getAnswer(), is(Answer.INCORRECT));
+    }
+
+    @Test
+    public void answerPagesShouldFollowEachOtherById() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+        answersDao.logAnswer(translationId, CORRECT_NOW);
+        answersDao.logAnswer(translationId, new AnswerAtTime(Answer.INCORRECT, new Date()));
+        answersDao.logAnswer(translationId, CORRECT_NOW);
+
+        List<LoggedAnswer> firstPage = answersDao.getAnswersPage(0, 2);
+        List<LoggedAnswer> secondPage = answersDao.getAnswersPage(getLast(firstPage).getId(), 2);
+
+        assertThat(firstPage, hasSize(2));
+        assertThat(firstPage.get(1).getAnswerAtTime().getAnswer(), is(Answer.INCORRECT));
+        assertThat(secondPage, hasSize(1));
+        assertThat(secondPage.get(0).getId(), is(answersDao.getLastAnswerId()));
+    }
+
+    @Test
+    public void answerBatchShouldSkipAlreadyLoggedAnswersAndMissingTranslations() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+        AnswerAtTime incorrect = new AnswerAtTime(Answer.INCORRECT, new Date(CORRECT_NOW.getTimepoint().getTime() + 1));
+        answersDao.logAnswer(translationId, CORRECT_NOW);
+
+        int logged = answersDao.logAnswers(newArrayList(new PendingAnswer(translationId, CORRECT_NOW, null),
+                                                        new PendingAnswer(translationId, incorrect, null),
+                                                        new PendingAnswer(translationId + 1, incorrect, null)));
+
+        assertThat(logged, is(1));
+        List<AnswerAtTime> answers = answersDao.getAnswersLogByTranslationId().get(translationId);
+        assertThat(answers, hasSize(2));
+        assertThat(getLast(answers).getAnswer(), is(Answer.INCORRECT));
+    }
+
+    @Test
+    public void shouldSaveScheduleAlongWithAnswer() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+        Date now = new Date();
+        Date inAnHour = new Date(now.getTime() + 60 * 60 * 1000);
+
+        answersDao.logAnswer(translationId, CORRECT_NOW, new ReviewSchedule(1, inAnHour, true));
+
+        assertThat(answersDao.getTranslationIdsWithSchedule(), contains(translationId));
+        assertThat(answersDao.getTranslationsRestrictedAt(now), hasEntry(translationId, inAnHour));
+        assertThat(answersDao.getTranslationsRestrictedAt(inAnHour).keySet(), empty());
+    }
+
+    @Test
+    public void loggingAnswerWithoutScheduleShouldDropStaleSchedule() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        int translationId = translationDao.getAllTranslations().get(0).getId();
+        answersDao.logAnswer(translationId, CORRECT_NOW, new ReviewSchedule(0, null, true));
+
+        answersDao.logAnswer(translationId, CORRECT_NOW);
+
+        assertThat(answersDao.getTranslationIdsWithSchedule(), empty());
+    }
+
+    @Test
+    public void deletingTranslationShouldDeleteItsSchedule() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answersDao = DaoCreator.createAnswerDao();
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
+        Translation translation = translationDao.getAllTranslations().get(0);
+        answersDao.logAnswer(translation.getId(), CORRECT_NOW, new ReviewSchedule(0, null, true));
+
+        translationDao.delete(Collections.singleton(translation));
+
+        assertThat(answersDao.getTranslationIdsWithSchedule(), empty());
+    }
+
     @Test
     public void shouldNotInsertAnswerToNotExistentQuestion() {
         AnswerDao answersDao = DaoCreator.clearDbAndCreateAnswerDao();
@@ -174,6 +174,56 @@ public class DaoObjectsFetcherTest {
         assertThat(mapToAnswers(metadata1.getRecentAnswers()), containsInAnyOrder(Answer.CORRECT, Answer.INCORRECT));
     }
 
+    @Test
+    public void shouldMergeOnlyAnswersLoggedAfterPreviousFetch() {
+        Translation translation = new Translation(ID1, createForeignToNativeTranslation("la palabra", "a word"));
+        translationDao.insertSingleWithLabels(translation);
+        answerDao.logAnswer(translation.getId(), CORRECT_NOW);
+        fetcher.fetchAnswersLog(asList(translation));
+        answerDao.logAnswer(translation.getId(), INCORRECT_NOW);
+
+        Collection<Translation> updated = fetcher.fetchNewAnswersLog(indexById(translation));
+
+        assertThat(updated, contains(translation));
+        assertThat(mapToAnswers(translation.getMetadata().getRecentAnswers()), contains(Answer.CORRECT, Answer.INCORRECT));
+    }
+
+    @Test
+    public void shouldNotMergeSameAnswersTwice() {
+        Translation translation = new Translation(ID1, createForeignToNativeTranslation("la palabra", "a word"));
+        translationDao.insertSingleWithLabels(translation);
+        fetcher.fetchAnswersLog(asList(translation));
+        answerDao.logAnswer(translation.getId(), CORRECT_NOW);
+        fetcher.fetchNewAnswersLog(indexById(translation));
+
+        Collection<Translation> updated = fetcher.fetchNewAnswersLog(indexById(translation));
+
+        assertThat(updated, empty());
+        assertThat(translation.getMetadata().getRecentAnswers(), hasSize(1));
+    }
+
+    @Test
+    public void shouldMergeAnswersReusingIdsOfDeletedOnes() {
+        Translation translation1 = new Translation(ID1, createForeignToNativeTranslation("la palabra", "a word"));
+        Translation translation2 = new Translation(ID2, createForeignToNativeTranslation("la cocina", "a kitchen"));
+        translationDao.insertSingleWithLabels(translation1);
+        translationDao.insertSingleWithLabels(translation2);
+        answerDao.logAnswer(translation1.getId(), CORRECT_NOW);
+        answerDao.logAnswer(translation2.getId(), CORRECT_NOW);
+        fetcher.fetchAnswersLog(asList(translation1, translation2));
+        translationDao.delete(asList(translation2));
+        fetcher.rewindAnswersLogAfterDeletion();
+        answerDao.logAnswer(translation1.getId(), INCORRECT_NOW);
+
+        fetcher.fetchNewAnswersLog(indexById(translation1));
+
+        assertThat(mapToAnswers(translation1.getMetadata().getRecentAnswers()), contains(Answer.CORRECT, Answer.INCORRECT));
+    }
+
+    private Map<Integer, Translation> indexById(Translation translation) {
+        return Collections.singletonMap(translation.getId(), translation);
+    }
+
     private List<Answer> mapToAnswers(List<AnswerAtTime> answersAtTime) {
         List<Answer> answers = new ArrayList<>();
         for (AnswerAtTime a : answersAtTime) {
@@ -1,5 +1,7 @@
 package integration;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import org.junit.After;
@@ -10,7 +12,11 @@ import org.robolectric.annotation.Config;
 import uk.ignas.livedictionary.BuildConfig;
 import uk.ignas.livedictionary.core.*;
 import uk.ignas.livedictionary.core.Dictionary;
+import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
+import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
 import uk.ignas.livedictionary.core.Labeler;
 import uk.ignas.livedictionary.testutils.DaoCreator;
@@ -25,9 +31,15 @@ import java.net.URL;
 import java.util.*;
 
 import static com.google.common.collect.Iterables.getFirst;
+import static com.google.common.collect.Iterables.getLast;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNot.not;
@@ -39,6 +51,7 @@ public class ExporterImporterIntegrationTest {
     public static final String IMPORT_FILE_NAME = "import.txt";
     public static final String LIVE_DATA_RESOURCE_NAME = "exported_translations.txt";
     public static final String EXPORT_FILE_NAME = "export.txt";
+    public static final String BACKUP_FILE_NAME = "backup.ldb";
 
     private Clock clock = new Clock();
 
@@ -46,6 +59,7 @@ public class ExporterImporterIntegrationTest {
     public void teardown() {
         removeFileIfExists(IMPORT_FILE_NAME);
         removeFileIfExists(EXPORT_FILE_NAME);
+        removeFileIfExists(BACKUP_FILE_NAME);
     }
 
     private void removeFileIfExists(String fileName) {
@@ -106,7 +120,7 @@ public class ExporterImporterIntegrationTest {
         AnswerDao answerDao = DaoCreator.createAnswerDao();
         createImportedAndimportDataToDao(LIVE_DATA_RESOURCE_NAME, translationDao);
         DaoObjectsFetcher fetcher = new DaoObjectsFetcher(labelDao, answerDao);
-        Labeler labeler = new Labeler(translationDao, fetcher, labelDao);
+        Labeler labeler = new Labeler(translationDao, labelDao);
         Dictionary q = new Dictionary(translationDao, answerDao, fetcher, labeler, clock, new PreferNewestTranslationSelectionStrategy(clock));
         List<Translation> translations = translationDao.getAllTranslations();
         int size = translations.size();
@@ -120,11 +134,196 @@ public class ExporterImporterIntegrationTest {
         assertThat(newestCounter, is(greaterThan(eldestCounter)));
     }
 
+    @Test
+    public void importShouldReportProgressUntilWholeFileIsRead() throws IOException, URISyntaxException {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        Files.copy(new File(Resources.getResource(LIVE_DATA_RESOURCE_NAME).toURI()), new File(IMPORT_FILE_NAME));
+        final List<Long> progress = new ArrayList<>();
+
+        new DataImporterExporter(translationDao, DaoCreator.createBackupDao()).importFromFile(IMPORT_FILE_NAME, new ImportProgressListener() {
+            @Override
+            public void onProgress(long bytesRead, long totalBytes) {
+                progress.add(bytesRead);
+                assertThat(totalBytes, is(equalTo(new File(IMPORT_FILE_NAME).length())));
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        });
+
+        assertThat(progress.size(), is(greaterThan(1)));
+        assertThat(getLast(progress), is(equalTo(new File(IMPORT_FILE_NAME).length())));
+        assertThat(translationDao.getAllTranslations().size(), is(equalTo(2652)));
+    }
+
+    @Test
+    public void cancelledImportShouldLeaveExistingDictionaryUntouched() throws IOException, URISyntaxException {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        translationDao.insert(Arrays.asList(new Translation(new ForeignWord("la palabra"), new NativeWord("word"))));
+        Translation existing = getFirst(translationDao.getAllTranslations(), null);
+        answerDao.logAnswer(existing.getId(), new AnswerAtTime(Answer.CORRECT, new Date()));
+        Files.copy(new File(Resources.getResource(LIVE_DATA_RESOURCE_NAME).toURI()), new File(IMPORT_FILE_NAME));
+        final boolean[] cancelled = {false};
+
+        new DataImporterExporter(translationDao, DaoCreator.createBackupDao()).importFromFile(IMPORT_FILE_NAME, new ImportProgressListener() {
+            @Override
+            public void onProgress(long bytesRead, long totalBytes) {
+                cancelled[0] = true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled[0];
+            }
+        });
+
+        assertThat(translationDao.getAllTranslations(), contains(existing));
+        assertThat(answerDao.getAnswersLogByTranslationId().get(existing.getId()), hasSize(1));
+    }
+
+    @Test
+    public void mergeShouldKeepHistoryOfMatchingTranslationsAndApplyOnlyDifferences() throws IOException {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        translationDao.insert(Arrays.asList(new Translation(new ForeignWord("la palabra"), new NativeWord("word")),
+                                            new Translation(new ForeignWord("la cocina"), new NativeWord("kitchen"))));
+        Translation kept = getFirst(translationDao.getAllTranslations(), null);
+        answerDao.logAnswer(kept.getId(), new AnswerAtTime(Answer.CORRECT, new Date()));
+        labelDao.addLabelledTranslation(kept.getId(), Label.A);
+        Files.write("la palabra - word\nla casa - house\n", new File(IMPORT_FILE_NAME), Charsets.UTF_8);
+
+        new DataImporterExporter(translationDao, DaoCreator.createBackupDao()).mergeFromFile(IMPORT_FILE_NAME, ImportProgressListener.NONE);
+
+        List<Translation> translations = translationDao.getAllTranslations();
+        assertThat(translations, hasSize(2));
+        assertThat(translations.get(0).getId(), is(equalTo(kept.getId())));
+        assertThat(translations.get(1).getNativeWord(), is(equalTo(new NativeWord("house"))));
+        assertThat(answerDao.getAnswersLogByTranslationId().get(kept.getId()), hasSize(1));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.A), contains(kept.getId()));
+    }
+
+    @Test
+    public void restoredBackupShouldContainTranslationsLabelsAndAnswersWithTheirIds() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        translationDao.insert(Arrays.asList(new Translation(new ForeignWord("la palabra"), new NativeWord("word")),
+                                            new Translation(new ForeignWord("la cocina"), new NativeWord("kitchen"))));
+        Translation answered = getFirst(translationDao.getAllTranslations(), null);
+        Date answerTime = new Date();
+        answerDao.logAnswer(answered.getId(), new AnswerAtTime(Answer.CORRECT, answerTime));
+        answerDao.logAnswer(answered.getId(), new AnswerAtTime(Answer.INCORRECT, answerTime, Feedback.ASKED_TOO_OFTEN));
+        labelDao.addLabelledTranslation(answered.getId(), Label.B);
+        List<Translation> backedUp = translationDao.getAllTranslations();
+        DataImporterExporter dataImporterExporter =
+            new DataImporterExporter(translationDao, DaoCreator.createBackupDao());
+
+        dataImporterExporter.backup(BACKUP_FILE_NAME);
+        translationDao.delete(backedUp);
+        translationDao.insertSingleWithLabels(new Translation(new ForeignWord("la casa"), new NativeWord("house")));
+        dataImporterExporter.restoreBackup(BACKUP_FILE_NAME, ImportProgressListener.NONE);
+
+        List<Translation> restored = translationDao.getAllTranslations();
+        assertThat(restored, is(equalTo(backedUp)));
+        assertThat(restored.get(0).getId(), is(equalTo(backedUp.get(0).getId())));
+        assertThat(restored.get(1).getId(), is(equalTo(backedUp.get(1).getId())));
+        List<AnswerAtTime> answers = answerDao.getAnswersLogByTranslationId().get(answered.getId());
+        assertThat(answers, hasSize(2));
+        assertThat(answers.get(0).getAnswer(), is(Answer.CORRECT));
+        assertThat(answers.get(0).getTimepoint(), is(equalTo(answerTime)));
+        assertThat(answers.get(1).getFeedback(), is(Feedback.ASKED_TOO_OFTEN));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.B), contains(answered.getId()));
+    }
+
+    @Test
+    public void restoredBackupShouldContainWordsLongerThan64Kilobytes() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        String longWord = Strings.repeat("la señal ", 10000);
+        translationDao.insertSingleWithLabels(new Translation(new ForeignWord(longWord), new NativeWord("signal")));
+        List<Translation> backedUp = translationDao.getAllTranslations();
+        DataImporterExporter dataImporterExporter =
+            new DataImporterExporter(translationDao, DaoCreator.createBackupDao());
+
+        dataImporterExporter.backup(BACKUP_FILE_NAME);
+        translationDao.delete(backedUp);
+        dataImporterExporter.restoreBackup(BACKUP_FILE_NAME, ImportProgressListener.NONE);
+
+        List<Translation> restored = translationDao.getAllTranslations();
+        assertThat(restored, is(equalTo(backedUp)));
+        assertThat(restored.get(0).getForeignWord().get(), is(equalTo(longWord)));
+    }
+
+    @Test
+    public void changesShouldNotBeExportedWithoutPreviousBackup() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        DataImporterExporter dataImporterExporter =
+            new DataImporterExporter(translationDao, DaoCreator.createBackupDao());
+
+        try {
+            dataImporterExporter.exportChanges(EXPORT_FILE_NAME);
+            fail();
+        } catch (LiveDictionaryException e) {
+            assertThat(new File(EXPORT_FILE_NAME).exists(), is(false));
+        }
+    }
+
+    @Test
+    public void changesExportedAfterBackupShouldBeSmallerThanBackup() throws IOException, URISyntaxException {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        DataImporterExporter dataImporterExporter = createImportedAndimportDataToDao(LIVE_DATA_RESOURCE_NAME,
+                                                                                     translationDao);
+        dataImporterExporter.backup(BACKUP_FILE_NAME);
+        translationDao.insertSingleWithLabels(new Translation(new ForeignWord("la casa"), new NativeWord("house")));
+
+        dataImporterExporter.exportChanges(EXPORT_FILE_NAME);
+
+        assertThat(new File(EXPORT_FILE_NAME).length(), is(lessThan(new File(BACKUP_FILE_NAME).length() / 10)));
+    }
+
+    @Test
+    public void changesRestoredOnTopOfBackupShouldReproduceDictionary() {
+        TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
+        AnswerDao answerDao = DaoCreator.createAnswerDao();
+        LabelDao labelDao = DaoCreator.createLabelDao();
+        translationDao.insert(Arrays.asList(new Translation(new ForeignWord("la palabra"), new NativeWord("word")),
+                                            new Translation(new ForeignWord("la cocina"), new NativeWord("kitchen"))));
+        Translation deleted = translationDao.getAllTranslations().get(0);
+        Translation kept = translationDao.getAllTranslations().get(1);
+        labelDao.addLabelledTranslation(deleted.getId(), Label.A);
+        answerDao.logAnswer(deleted.getId(), new AnswerAtTime(Answer.CORRECT, new Date()));
+        DataImporterExporter dataImporterExporter =
+            new DataImporterExporter(translationDao, DaoCreator.createBackupDao());
+        dataImporterExporter.backup(BACKUP_FILE_NAME);
+        translationDao.delete(Arrays.asList(deleted));
+        translationDao.insertSingleWithLabels(new Translation(new ForeignWord("la palabra"), new NativeWord("word")));
+        labelDao.addLabelledTranslation(kept.getId(), Label.B);
+        answerDao.logAnswer(kept.getId(), new AnswerAtTime(Answer.INCORRECT, new Date()));
+        dataImporterExporter.exportChanges(EXPORT_FILE_NAME);
+        List<Translation> expected = translationDao.getAllTranslations();
+        translationDao.delete(expected);
+
+        dataImporterExporter.restoreBackup(BACKUP_FILE_NAME, ImportProgressListener.NONE);
+        dataImporterExporter.restoreBackup(EXPORT_FILE_NAME, ImportProgressListener.NONE);
+
+        List<Translation> restored = translationDao.getAllTranslations();
+        assertThat(restored, is(equalTo(expected)));
+        assertThat(restored.get(0).getId(), is(equalTo(kept.getId())));
+        assertThat(restored.get(1).getId(), is(equalTo(expected.get(1).getId())));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.A), is(empty()));
+        assertThat(labelDao.getTranslationIdsWithLabel(Label.B), contains(kept.getId()));
+        assertThat(answerDao.getAnswersLogByTranslationId().get(deleted.getId()), is(empty()));
+        assertThat(answerDao.getAnswersLogByTranslationId().get(kept.getId()), hasSize(1));
+    }
+
     private DataImporterExporter createImportedAndimportDataToDao(String liveDataResourceName, TranslationDao translationDao) throws URISyntaxException, IOException {
         URL resource = Resources.getResource(liveDataResourceName);
         File importFile = new File(resource.toURI());
         Files.copy(importFile, new File(IMPORT_FILE_NAME));
-        DataImporterExporter dataImporterExporter = new DataImporterExporter(translationDao);
+        DataImporterExporter dataImporterExporter = new DataImporterExporter(translationDao, DaoCreator.createBackupDao());
 
         dataImporterExporter.importFromFile(IMPORT_FILE_NAME);
         return dataImporterExporter;
@@ -6,6 +6,8 @@ import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import uk.ignas.livedictionary.BuildConfig;
 import uk.ignas.livedictionary.core.*;
+import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
@@ -28,7 +30,7 @@ public class LabelerIntegrationTest {
     private TranslationDao translationDao = DaoCreator.cleanDbAndCreateTranslationDao();
     private LabelDao labelDao = DaoCreator.clearDbAndCreateLabelDao();
     private AnswerDao answerDao = DaoCreator.clearDbAndCreateAnswerDao();
-    private Labeler labeler = new Labeler(translationDao, new DaoObjectsFetcher(labelDao, answerDao), labelDao);
+    private Labeler labeler = new Labeler(translationDao, labelDao);
 
     private Translation createForeignToNativeTranslation(String foreignWord, String nativeWord) {
         return new Translation(new ForeignWord(foreignWord), new NativeWord(nativeWord));
@@ -148,6 +150,53 @@ public class LabelerIntegrationTest {
         assertThat(labelledTranslations, hasSize(1));
     }
 
+    @Test
+    public void shouldLabelManyTranslationsAtOnceSkippingAlreadyLabelled() {
+        translationDao.insert(asList(createForeignToNativeTranslation("la palabra", "word"),
+                                     createForeignToNativeTranslation("la cocina", "kitchen"),
+                                     createForeignToNativeTranslation("la casa", "house")));
+        List<Translation> all = translationDao.getAllTranslations();
+        labeler.addLabel(all.get(0), Label.A);
+
+        int added = labeler.addLabel(all, Label.A);
+
+        assertThat(added, is(2));
+        assertThat(labeler.getLabelled(Label.A), hasSize(3));
+    }
+
+    @Test
+    public void shouldRemoveLabelFromManyTranslationsAtOnce() {
+        translationDao.insert(asList(createForeignToNativeTranslation("la palabra", "word"),
+                                     createForeignToNativeTranslation("la cocina", "kitchen")));
+        List<Translation> all = translationDao.getAllTranslations();
+        labeler.addLabel(all, Label.A);
+        labeler.addLabel(all, Label.B);
+
+        int removed = labeler.removeLabel(all, Label.A);
+
+        assertThat(removed, is(2));
+        assertThat(labeler.getLabelled(Label.A), hasSize(0));
+        assertThat(labeler.getLabelled(Label.B), hasSize(2));
+    }
+
+    @Test
+    public void shouldLabelTranslationsAnsweredIncorrectlyGivenNumberOfTimes() {
+        translationDao.insert(asList(createForeignToNativeTranslation("la palabra", "word"),
+                                     createForeignToNativeTranslation("la cocina", "kitchen")));
+        List<Translation> all = translationDao.getAllTranslations();
+        AnswerAtTime incorrect = new AnswerAtTime(Answer.INCORRECT, new Date());
+        for (int i = 0; i < 3; i++) {
+            answerDao.logAnswer(all.get(0).getId(), incorrect);
+        }
+        answerDao.logAnswer(all.get(1).getId(), incorrect);
+        answerDao.logAnswer(all.get(1).getId(), new AnswerAtTime(Answer.CORRECT, new Date()));
+
+        int labelled = labeler.labelAnsweredIncorrectlyAtLeast(3, Label.B);
+
+        assertThat(labelled, is(1));
+        assertThat(getOnlyElement(labeler.getLabelled(Label.B)).getNativeWord(), is(new NativeWord("word")));
+    }
+
     @Test
     public void shouldBeAbleToAddDifferentLabels() {
         translationDao.insert(singletonList(createForeignToNativeTranslation("la palabra", "word")));
@@ -165,6 +214,40 @@ public class LabelerIntegrationTest {
         assertThat(translationsWithLabel2, hasSize(1));
     }
 
+    @Test
+    public void translationWithAnyOfLabelsShouldBeReturnedOnceWithAllItsLabels() {
+        translationDao.insert(singletonList(createForeignToNativeTranslation("la palabra", "word")));
+        translationDao.insert(singletonList(createForeignToNativeTranslation("la cocina", "kitchen")));
+        Translation labelled = getFirst(translationDao.getAllTranslations(), null);
+
+        labeler.addLabel(labelled, Label.A);
+        labeler.addLabel(labelled, Label.B);
+        labeler.addLabel(labelled, Label.C);
+        Collection<Translation> translations = labeler.getLabelledWithAnyOf(EnumSet.of(Label.A, Label.B));
+
+        assertThat(translations, hasSize(1));
+        assertThat(getFirst(translations, null).getNativeWord(), is(new NativeWord("word")));
+        assertThat(getFirst(translations, null).getMetadata().getLabels(), containsInAnyOrder(Label.A, Label.B, Label.C));
+    }
+
+    @Test
+    public void translationsWithNoneOfLabelsShouldBeReturnedWithOtherLabels() {
+        translationDao.insert(singletonList(createForeignToNativeTranslation("la palabra", "word")));
+        translationDao.insert(singletonList(createForeignToNativeTranslation("la cocina", "kitchen")));
+        translationDao.insert(singletonList(createForeignToNativeTranslation("la casa", "house")));
+        List<Translation> all = translationDao.getAllTranslations();
+
+        labeler.addLabel(all.get(0), Label.A);
+        labeler.addLabel(all.get(1), Label.C);
+        Collection<Translation> translations = labeler.getLabelledWithNoneOf(EnumSet.of(Label.A, Label.B));
+
+        assertThat(translations, hasSize(2));
+        assertThat(getFirst(translations, null).getNativeWord(), is(new NativeWord("kitchen")));
+        assertThat(getFirst(translations, null).getMetadata().getLabels(), contains(Label.C));
+        assertThat(getLast(translations).getNativeWord(), is(new NativeWord("house")));
+        assertThat(getLast(translations).getMetadata().getLabels(), hasSize(0));
+    }
+
     @Test()
     public void shouldThrowIfNotPersistedTranslationIsPassedIn() {
         Translation translation = createForeignToNativeTranslation("la palabra", "word");
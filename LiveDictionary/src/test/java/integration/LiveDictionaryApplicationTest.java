@@ -0,0 +1,45 @@
+package integration;
+
+import android.app.Activity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import uk.ignas.livedictionary.BuildConfig;
+import uk.ignas.livedictionary.LabellingActivity;
+import uk.ignas.livedictionary.LiveDictionaryActivity;
+import uk.ignas.livedictionary.LiveDictionaryApplication;
+import uk.ignas.livedictionary.core.AsyncDictionary;
+import uk.ignas.livedictionary.core.Labeler;
+import uk.ignas.livedictionary.core.TranslationDao;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LiveDictionaryApplicationTest {
+    @Test
+    public void activitiesShouldShareOneDictionaryAcrossRecreation() {
+        LiveDictionaryActivity activity = Robolectric.setupActivity(LiveDictionaryActivity.class);
+        assertThat(activity.getApplication(), is(instanceOf(LiveDictionaryApplication.class)));
+        LiveDictionaryApplication application = (LiveDictionaryApplication) activity.getApplication();
+
+        AsyncDictionary dictionary = application.getDictionary();
+        Labeler labeler = application.getLabeler();
+        TranslationDao translationDao = application.getTranslationDao();
+        LabellingActivity labellingActivity = Robolectric.setupActivity(LabellingActivity.class);
+        LiveDictionaryActivity recreatedActivity = Robolectric.setupActivity(LiveDictionaryActivity.class);
+
+        for (Activity other : asList(labellingActivity, recreatedActivity)) {
+            LiveDictionaryApplication otherApplication = (LiveDictionaryApplication) other.getApplication();
+            assertThat(otherApplication.getDictionary(), is(sameInstance(dictionary)));
+            assertThat(otherApplication.getLabeler(), is(sameInstance(labeler)));
+            assertThat(otherApplication.getTranslationDao(), is(sameInstance(translationDao)));
+        }
+    }
+}
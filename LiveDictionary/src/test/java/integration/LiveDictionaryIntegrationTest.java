@@ -1,21 +1,29 @@
 package integration;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import uk.ignas.livedictionary.BuildConfig;
 import uk.ignas.livedictionary.core.*;
 import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
+import uk.ignas.livedictionary.core.answer.AnswerJournal;
+import uk.ignas.livedictionary.core.answer.WriteBehindAnswerLogger;
 import uk.ignas.livedictionary.core.label.Label;
 import uk.ignas.livedictionary.core.label.LabelDao;
 import uk.ignas.livedictionary.testutils.DaoCreator;
 import uk.ignas.livedictionary.testutils.LiveDictionaryDsl;
 
+import java.io.File;
 import java.util.List;
+import java.util.Random;
 
 import static com.google.common.collect.Iterables.getLast;
 import static java.util.Collections.singletonList;
@@ -27,6 +35,8 @@ import static uk.ignas.livedictionary.testutils.LiveDictionaryDsl.createForeignT
 @RunWith(RobolectricGradleTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21)
 public class LiveDictionaryIntegrationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     private Clock clock = new Clock();
 
@@ -43,7 +53,7 @@ public class LiveDictionaryIntegrationTest {
         labelDao = DaoCreator.clearDbAndCreateLabelDao();
         answerDao = DaoCreator.clearDbAndCreateAnswerDao();
         fetcher = new DaoObjectsFetcher(labelDao, answerDao);
-        labeler = new Labeler(translationDao, fetcher, labelDao);
+        labeler = new Labeler(translationDao, labelDao);
         dictionary = new Dictionary(translationDao, answerDao, fetcher, labeler, clock, new SequentialSelectionStrategy());
     }
 
@@ -59,7 +69,7 @@ public class LiveDictionaryIntegrationTest {
 
     @Test
     public void shouldInstructStrategyWithAnswersOfTranslation() {
-        ArgumentCaptor<List<Translation>> translationCaptor = ArgumentCaptor.forClass((Class)List.class);
+        ArgumentCaptor<Translation> translationCaptor = ArgumentCaptor.forClass(Translation.class);
         TranslationSelectionStrategy strategy = mock(TranslationSelectionStrategy.class);
         Dictionary dictionary = new Dictionary(translationDao, answerDao, fetcher, labeler, clock, strategy);
         translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
@@ -68,14 +78,86 @@ public class LiveDictionaryIntegrationTest {
 
         dictionary.mark(translation, Answer.INCORRECT);
 
-        verify(strategy, atLeastOnce()).updateState(translationCaptor.capture());
-        assertThat(translationCaptor.getAllValues(), hasSize(greaterThanOrEqualTo(1)));
-        List<Translation> lastStateUpdate = getLast(translationCaptor.getAllValues());
-        Translation theOnlyWord = lastStateUpdate.get(0);
+        verify(strategy).refreshTranslation(translationCaptor.capture());
+        Translation theOnlyWord = translationCaptor.getValue();
         assertThat(theOnlyWord.getMetadata(), org.hamcrest.Matchers.notNullValue());
         assertThat(getLast(theOnlyWord.getMetadata().getRecentAnswers()).getAnswer(), is(Answer.INCORRECT));
     }
 
+    @Test
+    public void markingShouldNotReloadWholeDictionary() {
+        TranslationSelectionStrategy strategy = mock(TranslationSelectionStrategy.class);
+        Dictionary dictionary = new Dictionary(translationDao, answerDao, fetcher, labeler, clock, strategy);
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        Translation translation = translationDao.getAllTranslations().get(0);
+        dictionary.reloadData();
+
+        dictionary.mark(translation, Answer.CORRECT);
+        dictionary.markAsAskedTooOften(translation);
+
+        verify(strategy, times(2)).updateState(Mockito.<List<Translation>>any());
+        verify(strategy, times(2)).refreshTranslation(translation);
+    }
+
+    @Test
+    public void insertedTranslationShouldBeAskedWithoutReloading() {
+        dictionary.insert(createForeignToNativeTranslation("la palabra", "word"));
+
+        Translation translation = dictionary.getRandomTranslation();
+
+        assertThat(translation.getForeignWord().get(), is(equalTo("la palabra")));
+        assertThat(translation.getId(), is(notNullValue()));
+    }
+
+    @Test
+    public void translationLabelledByAShouldNotBeAskedWithoutReloading() {
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "a word"));
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la cocina", "a kitchen"));
+        dictionary.reloadData();
+
+        dictionary.addLabel(retrieveTranslationWithNativeWordFromDb("a kitchen"), Label.A);
+
+        List<Translation> translations = LiveDictionaryDsl.retrieveTranslationsNTimes(dictionary, 10);
+        int percentage = LiveDictionaryDsl.countPercentageOfRetrievedNativeWordsHadExpectedPattern(translations, "a word");
+        assertThat(percentage, is(100));
+    }
+
+    @Test
+    public void translationWithRemovedLabelShouldBeAskedAgainWithoutReloading() {
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la cocina", "a kitchen"));
+        Translation labelledTranslation = retrieveTranslationWithNativeWordFromDb("a kitchen");
+        labelDao.addLabelledTranslation(labelledTranslation.getId(), Label.A);
+        dictionary.reloadData();
+
+        dictionary.removeLabel(labelledTranslation, Label.A);
+
+        assertThat(dictionary.getRandomTranslation().getNativeWord().get(), is(equalTo("a kitchen")));
+    }
+
+    @Test
+    public void markingShouldPersistScheduleOfTranslation() {
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        dictionary.reloadData();
+        Translation translation = dictionary.getRandomTranslation();
+
+        dictionary.mark(translation, Answer.CORRECT);
+        dictionary.mark(translation, Answer.CORRECT);
+
+        assertThat(answerDao.getTranslationsRestrictedAt(clock.getTime()).keySet(), contains(translation.getId()));
+    }
+
+    @Test
+    public void reloadingShouldScheduleTranslationsAnsweredWithoutSchedule() {
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        Translation translation = translationDao.getAllTranslations().get(0);
+        answerDao.logAnswer(translation.getId(), new AnswerAtTime(Answer.CORRECT, clock.getTime()));
+        answerDao.logAnswer(translation.getId(), new AnswerAtTime(Answer.CORRECT, clock.getTime()));
+
+        dictionary.reloadData();
+
+        assertThat(answerDao.getTranslationsRestrictedAt(clock.getTime()).keySet(), contains(translation.getId()));
+    }
+
     @Test
     public void shouldSynchronizeWithDbOnDemand() {
         translationDao.insertSingleWithLabels(createForeignToNativeTranslation("la palabra", "word"));
@@ -165,6 +247,71 @@ public class LiveDictionaryIntegrationTest {
         assertThat(modifiedWord.getForeignWord().get(), is(equalTo("la palabra")));
     }
 
+    @Test
+    public void writeBehindAnswersShouldBeVisibleBeforeFlushAndPersistedAfter() {
+        WriteBehindAnswerLogger answerLogger =
+            new WriteBehindAnswerLogger(answerDao, new AnswerJournal(new File(folder.getRoot(), "answers.journal")));
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        Dictionary dictionary = new Dictionary(translationDao, answerDao, fetcher, labeler, clock,
+                                               new SequentialSelectionStrategy(), answerLogger);
+        Translation translation = dictionary.getRandomTranslation();
+
+        dictionary.mark(translation, Answer.INCORRECT);
+
+        assertThat(answerDao.getAnswersLogByTranslationId().size(), is(0));
+        assertThat(getLast(dictionary.getRandomTranslation().getMetadata().getRecentAnswers()).getAnswer(),
+                   is(Answer.INCORRECT));
+
+        dictionary.flushAnswers();
+
+        assertThat(answerLogger.getPendingCount(), is(0));
+        assertThat(answerDao.getAnswersLogByTranslationId().get(translation.getId()), hasSize(1));
+    }
+
+    @Test
+    public void journalledAnswersShouldBeRecoveredOnStartup() {
+        File journal = new File(folder.getRoot(), "answers.journal");
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        Dictionary dictionary = new Dictionary(translationDao, answerDao, fetcher, labeler, clock,
+                                               new SequentialSelectionStrategy(),
+                                               new WriteBehindAnswerLogger(answerDao, new AnswerJournal(journal)));
+        Translation translation = dictionary.getRandomTranslation();
+        dictionary.mark(translation, Answer.INCORRECT);
+
+        Dictionary restarted = new Dictionary(translationDao, answerDao, new DaoObjectsFetcher(labelDao, answerDao),
+                                              labeler, clock, new SequentialSelectionStrategy(),
+                                              new WriteBehindAnswerLogger(answerDao, new AnswerJournal(journal)));
+
+        assertThat(answerDao.getAnswersLogByTranslationId().get(translation.getId()), hasSize(1));
+        assertThat(answerDao.getTranslationIdsWithSchedule(), contains(translation.getId()));
+        assertThat(getLast(restarted.getRandomTranslation().getMetadata().getRecentAnswers()).getAnswer(),
+                   is(Answer.INCORRECT));
+        assertThat(journal.exists(), is(false));
+    }
+
+    @Test
+    public void publishedSnapshotShouldNotChangeWhenDictionaryIsEdited() {
+        translationDao.insertSingleWithLabels(createForeignToNativeTranslation("palabra", "word"));
+        dictionary.reloadData();
+        DictionarySnapshot beforeEdits = dictionary.getSnapshot();
+        Translation translation = retrieveTranslationWithNativeWordFromDb("word");
+
+        dictionary.mark(translation, Answer.CORRECT);
+        dictionary.insert(createForeignToNativeTranslation("la cocina", "kitchen"));
+        dictionary.addLabel(translation, Label.A);
+
+        assertThat(beforeEdits.getTranslationCount(), is(1));
+        assertThat(beforeEdits.getSelectableCount(), is(1));
+        assertThat(beforeEdits.getTranslation(translation.getId()).getMetadata().getRecentAnswers(), is(empty()));
+        DictionarySnapshot afterEdits = dictionary.getSnapshot();
+        assertThat(afterEdits.getTranslationCount(), is(2));
+        assertThat(afterEdits.getSelectableCount(), is(1));
+        assertThat(afterEdits.pickRandom(new Random()).get().getNativeWord().get(), is("kitchen"));
+        TranslationMetadata metadata = afterEdits.getTranslation(translation.getId()).getMetadata();
+        assertThat(metadata.getRecentAnswers(), hasSize(1));
+        assertThat(metadata.getLabels(), contains(Label.A));
+    }
+
     private Translation retrieveTranslationWithNativeWordFromDb(String nativeWord) {
         for (Translation t : translationDao.getAllTranslations()) {
             if (t.getNativeWord().get().equals(nativeWord)) {
@@ -0,0 +1,81 @@
+package integration;
+
+import android.database.Cursor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import uk.ignas.livedictionary.BuildConfig;
+import uk.ignas.livedictionary.core.util.DatabaseFacade;
+import uk.ignas.livedictionary.testutils.DaoCreator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class QueryPlanTest {
+    @Test
+    public void deletingAnswersByTranslationShouldUseIndex() {
+        String plan = explain("delete from answers_log where translation_id in (1, 2)");
+
+        assertThat(plan, containsString("USING COVERING INDEX answers_log_translation_id"));
+    }
+
+    @Test
+    public void answersOfTranslationShouldBeReadInTimeOrderWithoutSorting() {
+        String plan = explain("select time_answered from answers_log where translation_id = 1 order by time_answered");
+
+        assertThat(plan, containsString("USING COVERING INDEX answers_log_translation_id"));
+        assertThat(plan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void answersLogShouldBeReadFromCoveringIndexWithoutSorting() {
+        String plan = explain("select is_correct, translation_id, time_answered, feedback from answers_log "
+                              + "order by translation_id, time_answered, id");
+
+        assertThat(plan, containsString("USING COVERING INDEX answers_log_translation_id"));
+        assertThat(plan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void labelLookupShouldUseCoveringIndex() {
+        String plan = explain("select translation_id from labelled_translation where label_id = 1");
+
+        assertThat(plan, containsString("USING COVERING INDEX labelled_translation_label_id"));
+    }
+
+    @Test
+    public void translationsWithAnyOfLabelsShouldBeFoundThroughLabelIndex() {
+        String plan = explain("select id, foreignWord, nativeWord, label_mask from translations where id in "
+                              + "(select translation_id from labelled_translation where label_id in (1, 2)) "
+                              + "order by id");
+
+        assertThat(plan, containsString("USING COVERING INDEX labelled_translation_label_id"));
+        assertThat(plan, containsString("USING INTEGER PRIMARY KEY"));
+        assertThat(plan, not(containsString("SCAN TABLE translations")));
+    }
+
+    @Test
+    public void deletingLabelsByTranslationShouldUseIndex() {
+        String plan = explain("delete from labelled_translation where translation_id in (1, 2)");
+
+        assertThat(plan, containsString("USING COVERING INDEX sqlite_autoindex_labelled_translation_1"));
+    }
+
+    private String explain(String sql) {
+        DatabaseFacade databaseFacade = DaoCreator.createDatabase();
+        StringBuilder plan = new StringBuilder();
+        Cursor res = databaseFacade.rawQuery("explain query plan " + sql);
+        try {
+            while (res.moveToNext()) {
+                plan.append(res.getString(res.getColumnIndex("detail"))).append('\n');
+            }
+        } finally {
+            res.close();
+        }
+        return plan.toString();
+    }
+}
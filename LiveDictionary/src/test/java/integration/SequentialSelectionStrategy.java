@@ -18,6 +18,28 @@ public class SequentialSelectionStrategy implements TranslationSelectionStrategy
         iterator = Iterables.cycle(translations).iterator();
     }
 
+    @Override
+    public void addTranslation(Translation translation) {
+        translations.add(translation);
+        iterator = Iterables.cycle(translations).iterator();
+    }
+
+    @Override
+    public void removeTranslation(Translation translation) {
+        translations.remove(translation);
+        iterator = Iterables.cycle(translations).iterator();
+    }
+
+    @Override
+    public void replaceTranslation(Translation previous, Translation current) {
+        translations.set(translations.indexOf(previous), current);
+        iterator = Iterables.cycle(translations).iterator();
+    }
+
+    @Override
+    public void refreshTranslation(Translation translation) {
+    }
+
     @Override
     public Optional<Translation> selectTranslation() {
         return Optional.fromNullable(translations.isEmpty() ? null : iterator.next());
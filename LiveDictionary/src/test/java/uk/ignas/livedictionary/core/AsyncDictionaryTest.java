@@ -0,0 +1,185 @@
+package uk.ignas.livedictionary.core;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncDictionaryTest {
+    private final Dictionary dictionary = mock(Dictionary.class);
+
+    private final Translation translation = new Translation(1, new ForeignWord("la palabra"), new NativeWord("word"));
+
+    @Test
+    public void tasksShouldRunInSubmissionOrderAwayFromCallingThread() throws Exception {
+        final AtomicReference<Thread> workerThread = new AtomicReference<>();
+        when(dictionary.getRandomTranslation()).thenAnswer(new Answer<Translation>() {
+            @Override
+            public Translation answer(InvocationOnMock invocation) {
+                workerThread.set(Thread.currentThread());
+                return translation;
+            }
+        });
+        AsyncDictionary asyncDictionary = createAsyncDictionary(returning(dictionary));
+
+        asyncDictionary.mark(translation, uk.ignas.livedictionary.core.answer.Answer.CORRECT, ignoring());
+        Translation next = asyncDictionary.getRandomTranslation(ignoring()).get();
+
+        InOrder inOrder = inOrder(dictionary);
+        inOrder.verify(dictionary).mark(translation, uk.ignas.livedictionary.core.answer.Answer.CORRECT);
+        inOrder.verify(dictionary).getRandomTranslation();
+        assertThat(next, is(translation));
+        assertThat(workerThread.get(), is(not(Thread.currentThread())));
+    }
+
+    @Test
+    public void callbackShouldReceiveFailureOfTask() throws Exception {
+        LiveDictionaryException failure = new LiveDictionaryException("no questions found");
+        when(dictionary.getRandomTranslation()).thenThrow(failure);
+        final AtomicReference<Throwable> reported = new AtomicReference<>();
+        final CountDownLatch callbackCalled = new CountDownLatch(1);
+        AsyncDictionary asyncDictionary = createAsyncDictionary(returning(dictionary));
+
+        asyncDictionary.getRandomTranslation(new FutureCallback<Translation>() {
+            @Override
+            public void onSuccess(Translation result) {
+                callbackCalled.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                reported.set(t);
+                callbackCalled.countDown();
+            }
+        });
+
+        assertThat(callbackCalled.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(reported.get(), is(sameInstance((Throwable) failure)));
+    }
+
+    @Test
+    public void failedConstructionShouldFailQueuedTasks() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("cannot open database");
+        AsyncDictionary asyncDictionary = createAsyncDictionary(new Callable<Dictionary>() {
+            @Override
+            public Dictionary call() {
+                throw failure;
+            }
+        });
+
+        try {
+            asyncDictionary.getRandomTranslation(ignoring()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+    }
+
+    @Test
+    public void snapshotShouldBeReadableWhileWriterIsBusy() throws Exception {
+        DictionarySnapshot snapshot = DictionarySnapshot.EMPTY.with(translation, true);
+        when(dictionary.getSnapshot()).thenReturn(snapshot);
+        final CountDownLatch writerBusy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws InterruptedException {
+                writerBusy.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(dictionary).reloadData();
+        AsyncDictionary asyncDictionary = createAsyncDictionary(returning(dictionary));
+        asyncDictionary.reloadData(ignoring());
+        assertThat(writerBusy.await(5, TimeUnit.SECONDS), is(true));
+
+        DictionarySnapshot sampled = asyncDictionary.getSnapshot();
+
+        release.countDown();
+        assertThat(sampled, is(sameInstance(snapshot)));
+        assertThat(sampled.getTranslation(translation.getId()), is(translation));
+    }
+
+    @Test
+    public void transferShouldRunOnWriterBetweenFlushAndReload() throws Exception {
+        final AtomicReference<Thread> transferThread = new AtomicReference<>();
+        final Runnable transfer = mock(Runnable.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                transferThread.set(Thread.currentThread());
+                return null;
+            }
+        }).when(transfer).run();
+        AsyncDictionary asyncDictionary = createAsyncDictionary(returning(dictionary));
+
+        asyncDictionary.transfer(transfer, true, ignoring()).get();
+
+        InOrder inOrder = inOrder(dictionary, transfer);
+        inOrder.verify(dictionary).flushAnswers();
+        inOrder.verify(transfer).run();
+        inOrder.verify(dictionary).reloadData();
+        assertThat(transferThread.get(), is(not(Thread.currentThread())));
+    }
+
+    @Test
+    public void failedTransferShouldStillReloadDictionary() throws Exception {
+        Runnable transfer = mock(Runnable.class);
+        doThrow(new LiveDictionaryException("corrupted backup")).when(transfer).run();
+        AsyncDictionary asyncDictionary = createAsyncDictionary(returning(dictionary));
+
+        try {
+            asyncDictionary.transfer(transfer, true, ignoring()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(LiveDictionaryException.class));
+        }
+        verify(dictionary).reloadData();
+    }
+
+    private AsyncDictionary createAsyncDictionary(Callable<Dictionary> factory) {
+        return new AsyncDictionary(factory, MoreExecutors.sameThreadExecutor());
+    }
+
+    private Callable<Dictionary> returning(final Dictionary dictionary) {
+        return new Callable<Dictionary>() {
+            @Override
+            public Dictionary call() {
+                return dictionary;
+            }
+        };
+    }
+
+    private FutureCallback<Object> ignoring() {
+        return new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ignas.livedictionary.core;
+
+import org.junit.Test;
+import uk.ignas.livedictionary.core.answer.Answer;
+import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.label.Label;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+public class DictionarySnapshotTest {
+    private final Translation word = new Translation(1, new ForeignWord("la palabra"), new NativeWord("word"));
+
+    private final Translation kitchen = new Translation(40, new ForeignWord("la cocina"), new NativeWord("kitchen"));
+
+    private final Translation house = new Translation(70000, new ForeignWord("la casa"), new NativeWord("house"));
+
+    @Test
+    public void editedSnapshotShouldLeavePreviousOneUnchanged() {
+        DictionarySnapshot first = DictionarySnapshot.EMPTY.with(word, true).with(kitchen, true);
+
+        DictionarySnapshot second = first.with(house, true).without(word.getId());
+
+        assertThat(first.getTranslationCount(), is(2));
+        assertThat(first.getTranslation(word.getId()), is(word));
+        assertThat(first.getTranslation(house.getId()), is(nullValue()));
+        assertThat(second.getTranslationCount(), is(2));
+        assertThat(second.getTranslation(word.getId()), is(nullValue()));
+        assertThat(second.getTranslation(kitchen.getId()), is(kitchen));
+        assertThat(second.getTranslation(house.getId()), is(house));
+    }
+
+    @Test
+    public void onlySelectableTranslationsShouldBePicked() {
+        DictionarySnapshot snapshot = DictionarySnapshot.EMPTY.with(word, true).with(kitchen, false).with(house, true);
+        Random random = new Random(1);
+
+        Set<Translation> picked = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            picked.add(snapshot.pickRandom(random).get());
+        }
+
+        assertThat(snapshot.getSelectableCount(), is(2));
+        assertThat(picked, containsInAnyOrder(word, house));
+    }
+
+    @Test
+    public void translationWithdrawnFromQuestioningShouldStayReadable() {
+        DictionarySnapshot snapshot = DictionarySnapshot.EMPTY.with(word, true).with(word, false);
+
+        assertThat(snapshot.getTranslation(word.getId()), is(word));
+        assertThat(snapshot.getSelectableCount(), is(0));
+        assertThat(snapshot.pickRandom(new Random()).isPresent(), is(false));
+    }
+
+    @Test
+    public void snapshotShouldKeepCopyOfMetadata() {
+        AnswerAtTime answer = new AnswerAtTime(Answer.CORRECT, new Date());
+        word.getMetadata().getRecentAnswers().add(answer);
+        word.getMetadata().getLabels().add(Label.C);
+
+        DictionarySnapshot snapshot = DictionarySnapshot.EMPTY.with(word, true);
+        word.getMetadata().getRecentAnswers().add(new AnswerAtTime(Answer.INCORRECT, new Date()));
+        word.getMetadata().getLabels().remove(Label.C);
+
+        TranslationMetadata metadata = snapshot.getTranslation(word.getId()).getMetadata();
+        assertThat(metadata.getRecentAnswers(), contains(answer));
+        assertThat(metadata.getLabels(), contains(Label.C));
+        try {
+            metadata.getRecentAnswers().add(answer);
+            fail();
+        } catch (UnsupportedOperationException e) {
+
+        }
+    }
+}
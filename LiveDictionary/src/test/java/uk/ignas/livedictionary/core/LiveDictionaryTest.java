@@ -9,6 +9,8 @@ import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.answer.Feedback;
+import uk.ignas.livedictionary.core.answer.LoggedAnswer;
+import uk.ignas.livedictionary.core.answer.ReviewSchedule;
 import uk.ignas.livedictionary.core.label.LabelDao;
 
 import java.util.Date;
@@ -32,7 +34,7 @@ public class LiveDictionaryTest {
 
     private DaoObjectsFetcher fetcher = new DaoObjectsFetcher(labelDao, answerDao);
 
-    private Labeler labeler = new Labeler(translationDao, fetcher, labelDao);
+    private Labeler labeler = new Labeler(translationDao, labelDao);
 
     private Dictionary dictionary =
         new Dictionary(translationDao, answerDao, fetcher, labeler, clock, new SequentialSelectionStrategy());
@@ -112,8 +114,7 @@ public class LiveDictionaryTest {
         int id = 5;
         Translation modifiedTranslation =
             new Translation(id, new ForeignWord("la palabra cambiado"), new NativeWord("a word"));
-        when(translationDao.getAllTranslations()).thenReturn(newArrayList(new Translation(id, translationWithoutId)));
-        when(answerDao.getAnswersLogByTranslationId()).thenReturn(ArrayListMultimap.<Integer, AnswerAtTime>create());
+        when(translationDao.updateAlongWithLabels(modifiedTranslation)).thenReturn(1);
 
         boolean updated = dictionary.update(modifiedTranslation);
 
@@ -122,6 +123,45 @@ public class LiveDictionaryTest {
         verify(translationDao, never()).delete(Mockito.anyCollection());
     }
 
+    @Test
+    public void updatedTranslationMissingFromMemoryShouldBeAsked() {
+        Translation modifiedTranslation =
+            new Translation(5, new ForeignWord("la palabra cambiado"), new NativeWord("a word"));
+        when(translationDao.updateAlongWithLabels(modifiedTranslation)).thenReturn(1);
+
+        dictionary.update(modifiedTranslation);
+
+        assertThat(dictionary.getRandomTranslation().getForeignWord().get(), is("la palabra cambiado"));
+    }
+
+    @Test
+    public void shouldNotUpdateUnknownTranslation() {
+        Translation modifiedTranslation =
+            new Translation(5, new ForeignWord("la palabra cambiado"), new NativeWord("a word"));
+
+        boolean updated = dictionary.update(modifiedTranslation);
+
+        assertThat(updated, is(false));
+    }
+
+    @Test
+    public void markingShouldNotReadTranslationsFromDb() {
+        Translation translation = new Translation(5, new ForeignWord("la palabra"), new NativeWord("a word"));
+        when(translationDao.getAllTranslations()).thenReturn(newArrayList(translation));
+        when(answerDao.getAnswersLogByTranslationId()).thenReturn(ArrayListMultimap.<Integer, AnswerAtTime>create());
+        when(answerDao.logAnswer(Mockito.anyInt(), Mockito.any(AnswerAtTime.class), Mockito.any(ReviewSchedule.class)))
+            .thenReturn(true);
+        when(answerDao.getAnswersLoggedAfter(Mockito.anyLong()))
+            .thenReturn(newArrayList(new LoggedAnswer(1, 5, new AnswerAtTime(Answer.CORRECT, new Date()))));
+        dictionary.reloadData();
+        reset(translationDao);
+
+        dictionary.mark(translation, Answer.CORRECT);
+
+        verifyZeroInteractions(translationDao);
+        assertThat(translation.getMetadata().getRecentAnswers().size(), is(1));
+    }
+
     @Test
     public void shouldNotDeleteOnIssues() {
         Translation translationWithoutId = new Translation(new ForeignWord("la palabra"), new NativeWord("a word"));
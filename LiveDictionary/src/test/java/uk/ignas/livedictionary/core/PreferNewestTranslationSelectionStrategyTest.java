@@ -1,10 +1,12 @@
 package uk.ignas.livedictionary.core;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.testutils.LiveDictionaryDsl;
 
 import java.util.ArrayList;
@@ -18,6 +20,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static uk.ignas.livedictionary.testutils.LiveDictionaryDsl.*;
@@ -95,6 +98,73 @@ public class PreferNewestTranslationSelectionStrategyTest {
         assertThat(percentage, allOf(greaterThan(75), lessThan(85)));
     }
 
+    @Test
+    public void newestTranslationsShouldBeReplacedByNextNewestOnceRemoved() {
+        List<Translation> translations = new ArrayList<>();
+        translations.addAll(getNTranslationsWithNativeWordStartingWith(100, "Other"));
+        List<Translation> lastQuestions = getNTranslationsWithNativeWordStartingWith(100, "LastQ");
+        translations.addAll(lastQuestions);
+        strategy.updateState(translations);
+        for (Translation t : lastQuestions.subList(0, 50)) {
+            strategy.removeTranslation(t);
+        }
+
+        final List<Translation> retrievedTranslations = retrieveTranslationsNTimes(strategy, 1000);
+
+        int percentage = countPercentageOfRetrievedNativeWordsHadExpectedPattern(retrievedTranslations, "LastQ");
+        assertThat(percentage, allOf(greaterThan(33), lessThan(47)));
+    }
+
+    @Test
+    public void addedTranslationsShouldBecomeNewest() {
+        strategy.updateState(getNTranslationsWithNativeWordStartingWith(200, "Other"));
+        for (Translation t : getNTranslationsWithNativeWordStartingWith(100, "Added")) {
+            strategy.addTranslation(t);
+        }
+
+        final List<Translation> retrievedTranslations = retrieveTranslationsNTimes(strategy, 1000);
+
+        int percentage = countPercentageOfRetrievedNativeWordsHadExpectedPattern(retrievedTranslations, "Added");
+        assertThat(percentage, allOf(greaterThan(75), lessThan(85)));
+    }
+
+    @Test
+    public void deletedAndReaddedTranslationsShouldBecomeNewest() {
+        List<Translation> readded = getNTranslationsWithNativeWordStartingWith(100, "Readded");
+        List<Translation> translations = new ArrayList<>(readded);
+        translations.addAll(getNTranslationsWithNativeWordStartingWith(100, "Other"));
+        strategy.updateState(translations);
+        for (Translation t : readded) {
+            strategy.removeTranslation(t);
+        }
+        for (Translation t : readded) {
+            strategy.addTranslation(createForeignToNativeTranslation(t.getForeignWord().get(), t.getNativeWord().get()));
+        }
+
+        final List<Translation> retrievedTranslations = retrieveTranslationsNTimes(strategy, 1000);
+
+        int percentage = countPercentageOfRetrievedNativeWordsHadExpectedPattern(retrievedTranslations, "Readded");
+        assertThat(percentage, allOf(greaterThan(75), lessThan(85)));
+    }
+
+    @Test
+    public void repeatedlyAddedAndDeletedTranslationsShouldNotDisturbAgeOrder() {
+        List<Translation> translations = new ArrayList<>(getNTranslationsWithNativeWordStartingWith(100, "Old"));
+        translations.addAll(getNTranslationsWithNativeWordStartingWith(100, "New"));
+        strategy.updateState(translations);
+        for (int i = 0; i < 1000; i++) {
+            Translation temporary = createForeignToNativeTranslation("temporal" + i, "Temporary" + i);
+            strategy.addTranslation(temporary);
+            strategy.removeTranslation(temporary);
+        }
+
+        final List<Translation> retrievedTranslations = retrieveTranslationsNTimes(strategy, 1000);
+
+        assertThat(countPercentageOfRetrievedNativeWordsHadExpectedPattern(retrievedTranslations, "Temporary"), is(0));
+        int percentage = countPercentageOfRetrievedNativeWordsHadExpectedPattern(retrievedTranslations, "New");
+        assertThat(percentage, allOf(greaterThan(75), lessThan(85)));
+    }
+
     @Test
     public void shouldHandle100Translations() {
         for (int i = 0; i < 100; i++) {
@@ -199,6 +269,66 @@ public class PreferNewestTranslationSelectionStrategyTest {
         gettingNextTranslationShouldThroughLDEwithMessage(strategy, "There are no more difficult words");
     }
 
+    @Test
+    public void translationsRestrictedBySavedScheduleShouldNotBeAsked() {
+        Translation restricted = new Translation(1, createForeignToNativeTranslation("la palabra", "word"));
+        Translation other = new Translation(2, createForeignToNativeTranslation("la frase", "phrase"));
+        AnswerDao answerDao = mock(AnswerDao.class);
+        when(answerDao.getTranslationsRestrictedAt(any(Date.class)))
+            .thenReturn(ImmutableMap.of(1, createDateDifferingBy(new Date(), 1, Calendar.HOUR)));
+        PreferNewestTranslationSelectionStrategy strategy =
+            new PreferNewestTranslationSelectionStrategy(clock, answerDao);
+        strategy.updateState(newArrayList(restricted, other));
+
+        List<Translation> translations = retrieveTranslationsNTimes(strategy, 10);
+
+        int percentage = countPercentageOfRetrievedNativeWordsHadExpectedPattern(translations, "phrase");
+        assertThat(percentage, is(100));
+    }
+
+    @Test
+    public void whenAllTranslationsAreRestrictedShouldReportWhenNextOneIsDue() {
+        Date now = new Date();
+        Date soonest = createDateDifferingBy(now, 1, Calendar.HOUR);
+        Translation restrictedLonger = new Translation(1, createForeignToNativeTranslation("la palabra", "word"));
+        Translation restrictedShorter = new Translation(2, createForeignToNativeTranslation("la frase", "phrase"));
+        Clock clock = mock(Clock.class);
+        when(clock.getTime()).thenReturn(now);
+        AnswerDao answerDao = mock(AnswerDao.class);
+        when(answerDao.getTranslationsRestrictedAt(any(Date.class)))
+            .thenReturn(ImmutableMap.of(1, createDateDifferingBy(now, 2, Calendar.HOUR), 2, soonest));
+        PreferNewestTranslationSelectionStrategy strategy =
+            new PreferNewestTranslationSelectionStrategy(clock, answerDao);
+        strategy.updateState(newArrayList(restrictedLonger, restrictedShorter));
+
+        try {
+            strategy.selectTranslation();
+            fail();
+        } catch (NothingDueException e) {
+            assertThat(e.getNextDueTime(), is(equalTo(soonest)));
+            assertThat(e.getMessage(), containsString("There are no more difficult words"));
+        }
+    }
+
+    @Test
+    public void restrictedTranslationShouldBeAskedOnceRestrictionEnds() {
+        Date now = new Date();
+        Date restrictedUntil = createDateDifferingBy(now, 1, Calendar.HOUR);
+        Translation restricted = new Translation(1, createForeignToNativeTranslation("la palabra", "word"));
+        Clock clock = mock(Clock.class);
+        when(clock.getTime()).thenReturn(now);
+        AnswerDao answerDao = mock(AnswerDao.class);
+        when(answerDao.getTranslationsRestrictedAt(any(Date.class))).thenReturn(ImmutableMap.of(1, restrictedUntil));
+        PreferNewestTranslationSelectionStrategy strategy =
+            new PreferNewestTranslationSelectionStrategy(clock, answerDao);
+        strategy.updateState(newArrayList(restricted));
+        gettingNextTranslationShouldThroughLDEwithMessage(strategy, "There are no more difficult words");
+
+        when(clock.getTime()).thenReturn(restrictedUntil);
+
+        assertThat(strategy.selectTranslation(), is(equalTo(Optional.of(restricted))));
+    }
+
     @Test
     public void onceZerothLevelTranslationIsRestrictedByPromotionOtherTranslationsShouldBeAsked() {
         Translation easyTranslation = createForeignToNativeTranslation("la palabra", "word");
@@ -247,4 +377,4 @@ public class PreferNewestTranslationSelectionStrategyTest {
     private int getUniqueInt() {
         return uniqueSequence++;
     }
-}
\ No newline at end of file
+}
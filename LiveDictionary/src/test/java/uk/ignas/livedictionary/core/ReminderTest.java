@@ -3,6 +3,7 @@ package uk.ignas.livedictionary.core;
 import org.junit.Test;
 import uk.ignas.livedictionary.core.answer.Answer;
 import uk.ignas.livedictionary.core.answer.AnswerAtTime;
+import uk.ignas.livedictionary.core.answer.ReviewSchedule;
 import uk.ignas.livedictionary.testutils.PromotionPeriod;
 
 import java.util.ArrayList;
@@ -12,6 +13,7 @@ import java.util.List;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -555,4 +557,35 @@ public class ReminderTest {
 
         assertThat(shouldRemind, is(true));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void scheduleShouldRestrictPromotedTranslationUntilPromotionPeriodEnds() {
+        Reminder reminder = new Reminder(mock(Clock.class));
+
+        ReviewSchedule schedule = reminder.getSchedule(asList(
+                new AnswerAtTime(Answer.CORRECT, LEVEL_0.begin()),
+                new AnswerAtTime(Answer.CORRECT, LEVEL_0.begin()),
+                new AnswerAtTime(Answer.CORRECT, LEVEL_1.begin()),
+                new AnswerAtTime(Answer.CORRECT, LEVEL_1.begin())
+        ));
+
+        assertThat(schedule.getPromotionLevel(), is(2));
+        assertThat(schedule.getRestrictedUntil(), is(LEVEL_2.begin()));
+        assertThat(schedule.isLastAnswerCorrect(), is(true));
+    }
+
+    @Test
+    public void scheduleShouldNotRestrictMistakenTranslation() {
+        Reminder reminder = new Reminder(mock(Clock.class));
+
+        ReviewSchedule schedule = reminder.getSchedule(asList(
+                new AnswerAtTime(Answer.CORRECT, LEVEL_0.begin()),
+                new AnswerAtTime(Answer.CORRECT, LEVEL_0.begin()),
+                new AnswerAtTime(Answer.INCORRECT, LEVEL_0.begin())
+        ));
+
+        assertThat(schedule.getPromotionLevel(), is(0));
+        assertThat(schedule.getRestrictedUntil(), nullValue());
+        assertThat(schedule.isLastAnswerCorrect(), is(false));
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ignas.livedictionary.core;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionPlannerTest {
+    private final TranslationSelectionStrategy strategy = mock(TranslationSelectionStrategy.class);
+
+    private final Translation word = new Translation(1, new ForeignWord("la palabra"), new NativeWord("word"));
+
+    private final Translation kitchen = new Translation(2, new ForeignWord("la cocina"), new NativeWord("kitchen"));
+
+    private final Translation house = new Translation(3, new ForeignWord("la casa"), new NativeWord("house"));
+
+    @Test
+    public void plannedQuestionsShouldBeServedInOrderWithoutAskingStrategyAgain() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word), Optional.of(kitchen), Optional.of(house));
+        SessionPlanner planner = new SessionPlanner(strategy, 3);
+
+        planner.planAhead();
+
+        assertThat(planner.selectTranslation().get(), is(word));
+        assertThat(planner.selectTranslation().get(), is(kitchen));
+        assertThat(planner.selectTranslation().get(), is(house));
+        verify(strategy, times(3)).selectTranslation();
+    }
+
+    @Test
+    public void answeringShouldInvalidateOnlyAnsweredTranslation() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word), Optional.of(kitchen), Optional.of(word));
+        SessionPlanner planner = new SessionPlanner(strategy, 3);
+        planner.planAhead();
+
+        planner.refreshTranslation(word);
+
+        verify(strategy).refreshTranslation(word);
+        assertThat(planner.getPlannedCount(), is(1));
+        assertThat(planner.selectTranslation().get(), is(kitchen));
+    }
+
+    @Test
+    public void planningShouldStopWhenNothingIsDue() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word))
+                                          .thenThrow(new NothingDueException(new Date()));
+        SessionPlanner planner = new SessionPlanner(strategy, 3);
+
+        planner.planAhead();
+
+        assertThat(planner.getPlannedCount(), is(1));
+    }
+
+    @Test
+    public void reloadingShouldDropWholePlan() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word), Optional.of(kitchen));
+        SessionPlanner planner = new SessionPlanner(strategy, 2);
+        planner.planAhead();
+
+        planner.updateState(Collections.singletonList(house));
+
+        verify(strategy).updateState(Collections.singletonList(house));
+        assertThat(planner.getPlannedCount(), is(0));
+    }
+
+    @Test
+    public void planningShouldStopWhenStrategyRepeatsPlannedTranslation() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word), Optional.of(kitchen), Optional.of(word));
+        SessionPlanner planner = new SessionPlanner(strategy, 3);
+
+        planner.planAhead();
+
+        assertThat(planner.getPlannedCount(), is(2));
+        assertThat(planner.selectTranslation().get(), is(word));
+        assertThat(planner.selectTranslation().get(), is(kitchen));
+    }
+
+    @Test
+    public void addedTranslationShouldNotWaitBehindPlannedOnes() {
+        when(strategy.selectTranslation()).thenReturn(Optional.of(word), Optional.of(kitchen), Optional.of(house));
+        SessionPlanner planner = new SessionPlanner(strategy, 2);
+        planner.planAhead();
+
+        planner.addTranslation(house);
+
+        verify(strategy).addTranslation(house);
+        assertThat(planner.getPlannedCount(), is(0));
+        assertThat(planner.selectTranslation().get(), is(house));
+    }
+}
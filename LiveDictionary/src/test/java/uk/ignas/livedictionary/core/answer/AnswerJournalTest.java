@@ -0,0 +1,80 @@
+package uk.ignas.livedictionary.core.answer;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AnswerJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadBackAppendedAnswers() throws IOException {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+
+        journal.append(new PendingAnswer(1, new AnswerAtTime(Answer.INCORRECT, new Date(1000)), null));
+        journal.append(new PendingAnswer(2, new AnswerAtTime(Answer.CORRECT, new Date(2000), Feedback.ASKED_TOO_OFTEN),
+                                         new ReviewSchedule(1, new Date(3000), true)));
+
+        List<PendingAnswer> answers = journal.readAll();
+        assertThat(answers, hasSize(2));
+        assertThat(answers.get(0).getTranslationId(), is(1));
+        assertThat(answers.get(0).getAnswerAtTime().getAnswer(), is(Answer.INCORRECT));
+        assertThat(answers.get(0).getAnswerAtTime().getFeedback(), is(nullValue()));
+        assertThat(answers.get(1).getAnswerAtTime().getTimepoint(), is(new Date(2000)));
+        assertThat(answers.get(1).getAnswerAtTime().getFeedback(), is(Feedback.ASKED_TOO_OFTEN));
+        assertThat(answers.get(0).getSchedule(), is(nullValue()));
+        assertThat(answers.get(1).getSchedule().getPromotionLevel(), is(1));
+        assertThat(answers.get(1).getSchedule().getRestrictedUntil(), is(new Date(3000)));
+        assertThat(answers.get(1).getSchedule().isLastAnswerCorrect(), is(true));
+    }
+
+    @Test
+    public void shouldSkipTornLastLine() throws IOException {
+        File file = new File(folder.getRoot(), "answers.journal");
+        AnswerJournal journal = new AnswerJournal(file);
+        journal.append(new PendingAnswer(1, new AnswerAtTime(Answer.CORRECT, new Date(1000)), null));
+        Files.append("2,20", file, Charsets.UTF_8);
+
+        List<PendingAnswer> answers = journal.readAll();
+
+        assertThat(answers, hasSize(1));
+        assertThat(answers.get(0).getTranslationId(), is(1));
+    }
+
+    @Test
+    public void clearedJournalShouldBeEmpty() {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+        journal.append(new PendingAnswer(1, new AnswerAtTime(Answer.CORRECT, new Date(1000)), null));
+
+        journal.clear();
+
+        assertThat(journal.readAll(), is(empty()));
+    }
+
+    @Test
+    public void answersAppendedAfterClearShouldStartNewJournal() {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+        journal.append(new PendingAnswer(1, new AnswerAtTime(Answer.CORRECT, new Date(1000)), null));
+        journal.clear();
+
+        journal.append(new PendingAnswer(2, new AnswerAtTime(Answer.INCORRECT, new Date(2000)), null));
+
+        List<PendingAnswer> answers = journal.readAll();
+        assertThat(answers, hasSize(1));
+        assertThat(answers.get(0).getTranslationId(), is(2));
+    }
+}
@@ -0,0 +1,99 @@
+package uk.ignas.livedictionary.core.answer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteBehindAnswerLoggerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AnswerDao answerDao = mock(AnswerDao.class);
+
+    @Test
+    public void failedFlushShouldKeepAnswersAndRetryThemBeforeLaterOnes() {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+        WriteBehindAnswerLogger logger = new WriteBehindAnswerLogger(answerDao, journal);
+        final List<Integer> committedIds = new ArrayList<>();
+        when(answerDao.logAnswers(anyListOf(PendingAnswer.class)))
+            .thenThrow(new IllegalStateException("database is locked"))
+            .thenAnswer(new org.mockito.stubbing.Answer<Integer>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Integer answer(InvocationOnMock invocation) {
+                    for (PendingAnswer answer : (List<PendingAnswer>) invocation.getArguments()[0]) {
+                        committedIds.add(answer.getTranslationId());
+                    }
+                    return committedIds.size();
+                }
+            });
+        logger.log(1, new AnswerAtTime(Answer.CORRECT, new Date(1000)), null);
+        try {
+            logger.flush();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertThat(logger.getPendingCount(), is(1));
+        assertThat(journal.readAll(), hasSize(1));
+
+        logger.log(2, new AnswerAtTime(Answer.INCORRECT, new Date(2000)), null);
+        logger.flush();
+
+        assertThat(committedIds, contains(1, 2));
+        assertThat(logger.getPendingCount(), is(0));
+        assertThat(journal.readAll(), is(empty()));
+    }
+
+    @Test
+    public void answersLeftInJournalShouldBeReplayedWithTheirSchedules() {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+        ReviewSchedule schedule = new ReviewSchedule(2, new Date(5000), true);
+        journal.append(new PendingAnswer(1, new AnswerAtTime(Answer.CORRECT, new Date(1000)), schedule));
+        final List<ReviewSchedule> replayedSchedules = new ArrayList<>();
+        when(answerDao.logAnswers(anyListOf(PendingAnswer.class)))
+            .thenAnswer(new org.mockito.stubbing.Answer<Integer>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Integer answer(InvocationOnMock invocation) {
+                    for (PendingAnswer answer : (List<PendingAnswer>) invocation.getArguments()[0]) {
+                        replayedSchedules.add(answer.getSchedule());
+                    }
+                    return replayedSchedules.size();
+                }
+            });
+
+        new WriteBehindAnswerLogger(answerDao, journal).recover();
+
+        assertThat(replayedSchedules, hasSize(1));
+        assertThat(replayedSchedules.get(0).getPromotionLevel(), is(2));
+        assertThat(replayedSchedules.get(0).getRestrictedUntil(), is(new Date(5000)));
+        assertThat(journal.readAll(), is(empty()));
+    }
+
+    @Test
+    public void flushingWithoutPendingAnswersShouldNotTouchDatabase() {
+        AnswerJournal journal = new AnswerJournal(new File(folder.getRoot(), "answers.journal"));
+
+        new WriteBehindAnswerLogger(answerDao, journal).flush();
+
+        verify(answerDao, never()).logAnswers(anyListOf(PendingAnswer.class));
+    }
+}
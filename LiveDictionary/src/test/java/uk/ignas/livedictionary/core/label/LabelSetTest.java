@@ -0,0 +1,55 @@
+package uk.ignas.livedictionary.core.label;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class LabelSetTest {
+    @Test
+    public void maskShouldHaveOneBitPerLabel() {
+        LabelSet labels = new LabelSet();
+
+        labels.add(Label.A);
+        labels.add(Label.C);
+
+        assertThat(labels.getMask(), is(Label.A.getMask() | Label.C.getMask()));
+        assertThat(labels.size(), is(2));
+        assertThat(labels, contains(Label.A, Label.C));
+    }
+
+    @Test
+    public void addingPresentLabelShouldNotChangeSet() {
+        LabelSet labels = new LabelSet(Label.B.getMask());
+
+        boolean changed = labels.add(Label.B);
+
+        assertThat(changed, is(false));
+        assertThat(labels.size(), is(1));
+    }
+
+    @Test
+    public void shouldRemoveLabelsThroughIterator() {
+        LabelSet labels = new LabelSet(LabelSet.maskOf(EnumSet.of(Label.A, Label.B, Label.D)));
+
+        Iterator<Label> iterator = labels.iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+
+        assertThat(labels, contains(Label.A, Label.D));
+    }
+
+    @Test
+    public void shouldBeEqualToOtherSetWithSameLabels() {
+        LabelSet labels = new LabelSet(LabelSet.maskOf(EnumSet.of(Label.A, Label.D)));
+
+        assertThat(labels.equals(EnumSet.of(Label.A, Label.D)), is(true));
+        assertThat(labels.containsAny(Label.D.getMask()), is(true));
+        assertThat(labels.contains(Label.B), is(false));
+    }
+}
@@ -1,12 +1,13 @@
 package uk.ignas.livedictionary.testutils;
 
 
-import org.robolectric.Robolectric;
-import uk.ignas.livedictionary.LiveDictionaryActivity;
+import org.robolectric.RuntimeEnvironment;
 import uk.ignas.livedictionary.core.SqliteTranslationDao;
 import uk.ignas.livedictionary.core.TranslationDao;
 import uk.ignas.livedictionary.core.answer.AnswerDao;
 import uk.ignas.livedictionary.core.answer.SqliteAnswerDao;
+import uk.ignas.livedictionary.core.backup.BackupDao;
+import uk.ignas.livedictionary.core.backup.SqliteBackupDao;
 import uk.ignas.livedictionary.core.label.LabelDao;
 import uk.ignas.livedictionary.core.label.SqliteLabelDao;
 import uk.ignas.livedictionary.core.util.DatabaseFacade;
@@ -42,6 +43,11 @@ public class DaoCreator {
         return new SqliteLabelDao(databaseFacade);
     }
 
+    public static BackupDao createBackupDao() {
+        DatabaseFacade databaseFacade = createDatabase();
+        return new SqliteBackupDao(databaseFacade);
+    }
+
     public static TranslationDao createTranslationDao() {
         DatabaseFacade databaseFacade = createDatabase();
         LabelDao labelDao = new SqliteLabelDao(databaseFacade);
@@ -49,8 +55,7 @@ public class DaoCreator {
         return new SqliteTranslationDao(labelDao, databaseFacade, answerDao);
     }
 
-    private static DatabaseFacade createDatabase() {
-        LiveDictionaryActivity activity = Robolectric.setupActivity(LiveDictionaryActivity.class);
-        return new DatabaseFacade(activity);
+    public static DatabaseFacade createDatabase() {
+        return new DatabaseFacade(RuntimeEnvironment.application);
     }
 }